@@ -0,0 +1,47 @@
+package tricatch.gotpache.http.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk size line parsing - String based (previous RelayChunked) vs ChunkSizeParser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChunkSizeParserBenchmark {
+
+    private final byte[][] lines = {
+            "1a".getBytes(StandardCharsets.US_ASCII),
+            "4000".getBytes(StandardCharsets.US_ASCII),
+            "ff;name=value".getBytes(StandardCharsets.US_ASCII),
+            "0".getBytes(StandardCharsets.US_ASCII),
+    };
+
+    @Benchmark
+    public void stringParse(Blackhole blackhole) {
+        for (byte[] line : lines) {
+            String chunkSizeLine = new String(line, 0, line.length);
+            int semicolonIndex = chunkSizeLine.indexOf(';');
+            if (semicolonIndex > 0) {
+                chunkSizeLine = chunkSizeLine.substring(0, semicolonIndex);
+            }
+            blackhole.consume(Integer.parseInt(chunkSizeLine.trim(), 16));
+        }
+    }
+
+    @Benchmark
+    public void byteParse(Blackhole blackhole) {
+        for (byte[] line : lines) {
+            blackhole.consume(ChunkSizeParser.parse(line, 0, line.length));
+        }
+    }
+}
@@ -9,20 +9,18 @@ import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 import org.yaml.snakeyaml.representer.Representer;
+import tricatch.gotpache.cert.CertificateWarmer;
+import tricatch.gotpache.cert.KeyPairPool;
 import tricatch.gotpache.cfg.Config;
-import tricatch.gotpache.cfg.VirtualHost;
-import tricatch.gotpache.cfg.VirtualHostsMap;
 import tricatch.gotpache.event.HttpEventManager;
 import tricatch.gotpache.exception.ConfigException;
 import tricatch.gotpache.server.*;
+import tricatch.gotpache.upstream.UpstreamTlsClient;
 import tricatch.gotpache.util.BrowserUtil;
 import tricatch.gotpache.util.SSLUtil;
-import tricatch.gotpache.util.VirtualHostUtil;
 
 import javax.net.ssl.SSLContext;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.security.Security;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -32,14 +30,14 @@ public class ProxyPassServer {
     private static final Logger logger = LoggerFactory.getLogger(ProxyPassServer.class);
 
     private static final String CFG_FILE = "./conf/proxypass.yml";
-    private static final String VHOST_DIR = "./conf/vhost";
+    private static final long STOP_TIMEOUT_MS = 10000;
 
     public static ThreadPoolExecutor serverExecutor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
 
-    private static VirtualHostsMap virtualHostsMap = new VirtualHostsMap();
     private static Config config = null;
     private static SSLContext sslContext = null;
     private static SSLPassServer sslPassServer = null;
+    private static PassServer passServer = null;
 
     public static void main(String[] args) {
 
@@ -48,8 +46,14 @@ public class ProxyPassServer {
             Security.addProvider(new BouncyCastleProvider());
 
             initConfig();
+            SSLUtil.initSystemProperties(config);
+            Runtime.getRuntime().addShutdownHook(new Thread(ProxyPassServer::shutdown, "pt-shutdown"));
+            VirtualHostsRegistry.getInstance().loadAll();
+            VirtualHostsWatcher.start();
 
             HttpEventManager.getInstance();
+            UpstreamTlsClient.getInstance();
+            KeyPairPool.getInstance();
 
             serverExecutor.execute(new ProxyPassConsole());
 
@@ -58,11 +62,18 @@ public class ProxyPassServer {
                 initSslContext();
                 restartSslPassServer();
                 startedSslPassServer = true;
+                CertificateWarmer.warmUp(VirtualHostsRegistry.getInstance().getDomains());
             } catch (ConfigException e) {
                 logger.warn("SSL server initialization failed: {}. CA certificate may need to be generated.", e.getMessage());
 
             }
 
+            // plain listener needs no CA, it starts even when the SSL server could not
+            if( config.getHttp()!=null && config.getHttp().getPort()>0 ){
+                passServer = new PassServer();
+                serverExecutor.execute(passServer);
+            }
+
             if( !startedSslPassServer ){
                 BrowserUtil.openUrl("http://127.0.0.1:" + config.getConsole().getPort() + "/ca/generate");
             }
@@ -107,17 +118,19 @@ public class ProxyPassServer {
 
         logger.info("Restart {}", SSLPassServer.class.getSimpleName());
 
-        VThreadExecutor.stopAll();
-
         if( sslPassServer!=null ){
+
+            // stop accepting, then let in-flight exchanges complete
             sslPassServer.stop();
-            for(int i=0;i<100;i++){
-                Thread.sleep(1000);
-                RunState runState = sslPassServer.getRunState();
-                if( RunState.STOPPED == runState ){
-                    break;
-                }
+            if( !sslPassServer.awaitStopped(STOP_TIMEOUT_MS) ){
+                logger.warn("{} did not stop in {}ms", SSLPassServer.class.getSimpleName(), STOP_TIMEOUT_MS);
             }
+
+            // only the https connections - the plain listener keeps running
+            long drainStart = System.currentTimeMillis();
+            boolean drained = sslPassServer.getExecutors().drainAll(config.getHttps().getDrainTimeout());
+            logger.info("Drained connections in {}ms, complete={}", System.currentTimeMillis() - drainStart, drained);
+
             sslPassServer = null;
         }
 
@@ -125,37 +138,61 @@ public class ProxyPassServer {
         serverExecutor.execute(sslPassServer);
     }
 
-    public static VirtualHosts getVirtualHosts(String clientId, boolean reload) throws IOException {
+    /**
+     * Apply a new CA - the running listener keeps its port and hands new connections the new SSLContext,
+     * a stopped listener or a changed port falls back to restartSslPassServer
+     */
+    public static void reloadSslContext() throws ConfigException, InterruptedException {
+
+        initSslContext();
+
+        SSLPassServer server = sslPassServer;
+        if( server!=null
+                && server.getRunState()==RunState.RUNNING
+                && server.getPort()==config.getHttps().getPort() ){
+            server.updateSslContext(sslContext);
+        } else {
+            restartSslPassServer();
+        }
 
-        VirtualHosts virtualHosts = virtualHostsMap.get(clientId);
+        // the new key manager starts with an empty certificate cache
+        CertificateWarmer.warmUp(VirtualHostsRegistry.getInstance().getDomains());
+    }
 
-        if (virtualHosts != null && !reload) return virtualHosts;
+    /**
+     * Stop accepting on both listeners, then drain their connections
+     */
+    public static void shutdown() {
 
-        Representer representer = new Representer(new DumperOptions());
-        representer.getPropertyUtils().setSkipMissingProperties(true);
-        LoaderOptions loaderOptions = new LoaderOptions();
+        logger.info("Shutdown {}", ProxyPassServer.class.getSimpleName());
 
-        Constructor constructorVirtualHost = new Constructor(VirtualHost.class, loaderOptions);
-        Yaml yamlVirtualHost = new Yaml(constructorVirtualHost, representer);
+        SSLPassServer sslServer = sslPassServer;
+        PassServer server = passServer;
 
-        File vhClientFile = new File(VHOST_DIR + "/virtual-host-" + clientId + ".yml");
+        if( sslServer!=null ) sslServer.stop();
+        if( server!=null ) server.stop();
 
-        if( !vhClientFile.exists() ) {
-            File vhDefaultFile = new File(VHOST_DIR + "/virtual-host.yml"); // default
-            Files.copy(vhDefaultFile.toPath(), vhClientFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        long drainTimeout = config.getHttps()!=null ? config.getHttps().getDrainTimeout() : STOP_TIMEOUT_MS;
 
-        VirtualHost virtualHost = yamlVirtualHost.load(new FileInputStream(vhClientFile));
+        try {
+            if( sslServer!=null ){
+                if( !sslServer.awaitStopped(STOP_TIMEOUT_MS) ) logger.warn("{} did not stop in {}ms", SSLPassServer.class.getSimpleName(), STOP_TIMEOUT_MS);
+                sslServer.getExecutors().drainAll(drainTimeout);
+            }
+            if( server!=null ){
+                if( !server.awaitStopped(STOP_TIMEOUT_MS) ) logger.warn("{} did not stop in {}ms", PassServer.class.getSimpleName(), STOP_TIMEOUT_MS);
+                server.getExecutors().drainAll(drainTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        virtualHosts = VirtualHostUtil.convert(virtualHost.getVirtual());
+    public static VirtualHosts getVirtualHosts(String clientId, boolean reload) throws IOException {
 
-        virtualHostsMap.remove(clientId);
-        virtualHostsMap.put(clientId, virtualHosts);
-        if( reload ){
-            logger.info( "Reloaded virtual hosts for client {}", clientId );
-        }
+        VirtualHostsRegistry registry = VirtualHostsRegistry.getInstance();
 
-        return virtualHosts;
+        return reload ? registry.reload(clientId) : registry.get(clientId);
     }
 
     public static Config getConfig(){
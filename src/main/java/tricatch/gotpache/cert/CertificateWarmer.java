@@ -0,0 +1,180 @@
+package tricatch.gotpache.cert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Cert;
+import tricatch.gotpache.util.SSLUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mints certificates of configured domains ahead of the first handshake
+ *
+ * Runs in the background on warmupConcurrency threads, after startup, CA reloads and vhost reloads.
+ * Domains already cached are hits, so warming the same domains again is cheap.
+ * Wildcard and default hosts have no single name and are left to the handshake.
+ * A new run supersedes the one in progress: its domains not started yet are skipped and
+ * the stats report the latest run only.
+ */
+public class CertificateWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CertificateWarmer.class);
+
+    private static ExecutorService workers;
+
+    /** latest run, null before the first one */
+    private static volatile Run current = null;
+
+    /**
+     * Warm up the certificates of the domains in the background
+     * @param domains configured domain names
+     */
+    public static void warmUp(Collection<String> domains) {
+
+        Cert cert = certConfig();
+        if (!cert.isWarmup()) return;
+
+        MultiDomainCertKeyManager keyManager = SSLUtil.getCertKeyManager();
+        if (keyManager == null) return;
+
+        Set<String> names = new LinkedHashSet<>();
+        for (String domain : domains) {
+            if (domain == null || domain.isEmpty() || domain.startsWith("*")) continue;
+            names.add(domain.toLowerCase(Locale.ROOT));
+        }
+        if (names.isEmpty()) return;
+
+        ExecutorService executor = workers(cert);
+
+        Run run = new Run(names.size());
+        Run previous;
+        synchronized (CertificateWarmer.class) {
+            previous = current;
+            current = run;
+        }
+        if (previous != null && !previous.finished) {
+            previous.cancelled = true;
+            logger.info("Certificate warm-up superseded: {}/{}", previous.done.get(), previous.total);
+        }
+
+        Thread t = new Thread(() -> run(keyManager, names, executor, run), "pt-cert-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void run(MultiDomainCertKeyManager keyManager, Set<String> names, ExecutorService executor, Run run) {
+
+        long start = System.currentTimeMillis();
+        long mintedBefore = keyManager.getCertificates().getMintCount();
+        int step = Math.max(1, names.size() / 10);
+
+        logger.info("Certificate warm-up started: domains={}", names.size());
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (String domain : names) {
+            futures.add(executor.submit(() -> {
+                if (run.cancelled) return;
+                try {
+                    keyManager.warmUp(domain);
+                } catch (Exception e) {
+                    run.failed.incrementAndGet();
+                    logger.warn("Certificate warm-up failed - {}, {}", domain, e.getMessage());
+                }
+                int n = run.done.incrementAndGet();
+                if (n % step == 0 && n < names.size()) {
+                    logger.info("Certificate warm-up {}/{}, {}ms", n, names.size(), System.currentTimeMillis() - start);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                logger.debug("Certificate warm-up task - {}", e.getMessage());
+            }
+        }
+
+        run.elapsedMs = System.currentTimeMillis() - start;
+        run.finished = true;
+
+        logger.info("Certificate warm-up {}: domains={}, minted={}, failed={}, {}ms"
+                , run.cancelled ? "superseded" : "finished"
+                , names.size()
+                , keyManager.getCertificates().getMintCount() - mintedBefore
+                , run.failed.get()
+                , run.elapsedMs
+        );
+    }
+
+    private static synchronized ExecutorService workers(Cert cert) {
+        if (workers == null) {
+            int concurrency = cert.getWarmupConcurrency() > 0
+                    ? cert.getWarmupConcurrency()
+                    : Runtime.getRuntime().availableProcessors();
+            AtomicInteger counter = new AtomicInteger(0);
+            workers = Executors.newFixedThreadPool(concurrency, r -> {
+                Thread t = new Thread(r, "pt-cert-warmup-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return workers;
+    }
+
+    private static Cert certConfig() {
+        Config config = ProxyPassServer.getConfig();
+        return config != null && config.getCert() != null ? config.getCert() : new Cert();
+    }
+
+    public static int getTotal() {
+        Run run = current;
+        return run != null ? run.total : 0;
+    }
+
+    public static int getDone() {
+        Run run = current;
+        return run != null ? run.done.get() : 0;
+    }
+
+    public static int getFailed() {
+        Run run = current;
+        return run != null ? run.failed.get() : 0;
+    }
+
+    /**
+     * Duration of the latest run, 0 while it is in progress
+     */
+    public static long getElapsedMs() {
+        Run run = current;
+        return run != null ? run.elapsedMs : 0;
+    }
+
+    /**
+     * Progress of one warm-up
+     */
+    private static class Run {
+
+        private final int total;
+        private final AtomicInteger done = new AtomicInteger(0);
+        private final AtomicInteger failed = new AtomicInteger(0);
+        private volatile long elapsedMs = 0;
+        private volatile boolean finished = false;
+        private volatile boolean cancelled = false;
+
+        private Run(int total) {
+            this.total = total;
+        }
+    }
+}
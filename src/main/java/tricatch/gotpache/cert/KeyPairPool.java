@@ -0,0 +1,151 @@
+package tricatch.gotpache.cert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Cert;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ready-made key pairs for leaf certificates
+ *
+ * A daemon thread keeps up to size key pairs generated ahead, so minting a certificate for a new domain
+ * only signs it. When the pool is empty the key pair is generated inline (miss).
+ * Key types: RSA (2048) or EC (P-256, much cheaper to generate).
+ */
+public class KeyPairPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyPairPool.class);
+
+    public static final String RSA = "RSA";
+    public static final String EC = "EC";
+
+    private static volatile KeyPairPool instance;
+
+    private final String keyType;
+    private final BlockingQueue<KeyPair> ready;
+    private final Object refill = new Object();
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * @param keyType RSA or EC
+     * @param size key pairs kept ready, 0 disables the background generator
+     */
+    private KeyPairPool(String keyType, int size) throws GeneralSecurityException {
+
+        this.keyType = EC.equals(keyType == null ? null : keyType.toUpperCase(Locale.ROOT)) ? EC : RSA;
+        this.ready = new ArrayBlockingQueue<>(Math.max(1, size));
+
+        // fail fast on an unsupported key type
+        newGenerator();
+
+        if (size > 0) {
+            Thread t = new Thread(this::fill, "pt-keypair-pool");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        logger.info("KeyPairPool initialized: keyType={}, size={}", this.keyType, size);
+    }
+
+    /**
+     * Get singleton instance (lazy init from config) - key pairs do not depend on the CA,
+     * so the pool outlives SSLContext reloads
+     */
+    public static KeyPairPool getInstance() throws GeneralSecurityException {
+        if (instance == null) {
+            synchronized (KeyPairPool.class) {
+                if (instance == null) {
+                    Config config = ProxyPassServer.getConfig();
+                    Cert cert = config != null && config.getCert() != null ? config.getCert() : new Cert();
+                    instance = new KeyPairPool(cert.getKeyType(), cert.getKeyPoolSize());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Take a ready key pair, or generate one when the pool is empty
+     */
+    public KeyPair take() throws GeneralSecurityException {
+
+        KeyPair keyPair = ready.poll();
+
+        synchronized (refill) {
+            refill.notifyAll();
+        }
+
+        if (keyPair != null) {
+            hitCount.incrementAndGet();
+            return keyPair;
+        }
+
+        missCount.incrementAndGet();
+        return newGenerator().generateKeyPair();
+    }
+
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public int getReady() {
+        return ready.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private void fill() {
+
+        try {
+            KeyPairGenerator generator = newGenerator();
+
+            while (true) {
+
+                // sleep while full, woken up by take()
+                synchronized (refill) {
+                    while (ready.remainingCapacity() == 0) {
+                        refill.wait();
+                    }
+                }
+
+                ready.offer(generator.generateKeyPair());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("errorKeyPairPool - " + e.getMessage(), e);
+        }
+    }
+
+    private KeyPairGenerator newGenerator() throws GeneralSecurityException {
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType);
+
+        if (EC.equals(keyType)) {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+        } else {
+            generator.initialize(2048);
+        }
+
+        return generator;
+    }
+}
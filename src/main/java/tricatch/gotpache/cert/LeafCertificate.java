@@ -0,0 +1,26 @@
+package tricatch.gotpache.cert;
+
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+/**
+ * Leaf (server) certificate of a domain with its private key
+ */
+public class LeafCertificate {
+
+    private final X509Certificate certificate;
+    private final PrivateKey privateKey;
+
+    public LeafCertificate(X509Certificate certificate, PrivateKey privateKey) {
+        this.certificate = certificate;
+        this.privateKey = privateKey;
+    }
+
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+}
@@ -0,0 +1,172 @@
+package tricatch.gotpache.cert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leaf certificates by domain
+ *
+ * - single-flight: concurrent handshakes for a new domain wait for one minting
+ * - bounded: over maxSize, the least recently used entries are dropped (access-order map, no scan)
+ * The map is only touched under its lock, minting runs outside of it.
+ * - expiry: an entry is minted again renewBefore ms ahead of the certificate notAfter
+ */
+public class LeafCertificateCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeafCertificateCache.class);
+
+    /**
+     * Creates the certificate of a domain
+     */
+    public interface Minter {
+        LeafCertificate mint(String domain) throws Exception;
+    }
+
+    /** access order - the eldest entry is the least recently used */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxSize;
+    private final long renewBefore;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong mintCount = new AtomicLong(0);
+    private final AtomicLong evictCount = new AtomicLong(0);
+
+    public LeafCertificateCache(int maxSize, long renewBefore) {
+        this.maxSize = Math.max(1, maxSize);
+        this.renewBefore = renewBefore;
+    }
+
+    /**
+     * Cached certificate of the domain, minted once if missing or expiring
+     * @param domain SNI host name
+     * @param minter creates the certificate on a miss
+     * @return certificate and key
+     * @throws Exception when minting fails
+     */
+    public LeafCertificate get(String domain, Minter minter) throws Exception {
+
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(domain);
+            if (entry == null || !entry.isValid(now)) {
+                entry = new Entry();
+                entries.put(domain, entry);
+            }
+        }
+
+        if (entry.claim()) {
+            try {
+                LeafCertificate leafCertificate = minter.mint(domain);
+                entry.expiresAt = leafCertificate.getCertificate().getNotAfter().getTime() - renewBefore;
+                entry.future.complete(leafCertificate);
+                mintCount.incrementAndGet();
+                if (logger.isDebugEnabled()) logger.debug("Leaf certificate minted - {}", domain);
+            } catch (Exception e) {
+                synchronized (entries) {
+                    entries.remove(domain, entry);
+                }
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+            evictLeastRecentlyUsed();
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        try {
+            return entry.future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Certificate already in the cache (no minting), for the key manager callbacks after chooseServerAlias
+     * @param domain alias chosen for the handshake
+     * @return certificate and key, or null
+     */
+    public LeafCertificate peek(String domain) {
+        if (domain == null) return null;
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(domain);
+        }
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) return null;
+        return entry.future.join();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMintCount() {
+        return mintCount.get();
+    }
+
+    public long getEvictCount() {
+        return evictCount.get();
+    }
+
+    /**
+     * Drop the least recently used entries down to maxSize (only runs after a mint)
+     * Entries still minting are skipped - their callers are waiting on them.
+     */
+    private void evictLeastRecentlyUsed() {
+
+        synchronized (entries) {
+
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+
+            while (entries.size() > maxSize && it.hasNext()) {
+
+                Map.Entry<String, Entry> e = it.next();
+                if (!e.getValue().future.isDone()) continue;
+
+                it.remove();
+
+                evictCount.incrementAndGet();
+                if (logger.isDebugEnabled()) logger.debug("Leaf certificate evicted - {}", e.getKey());
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<LeafCertificate> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        /**
+         * true for the one caller that must mint
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private boolean isValid(long now) {
+            return !future.isCompletedExceptionally() && now < expiresAt;
+        }
+    }
+}
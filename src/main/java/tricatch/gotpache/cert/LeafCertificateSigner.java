@@ -0,0 +1,85 @@
+package tricatch.gotpache.cert;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+/**
+ * Signs leaf certificates for a domain with the root CA, using a key pair generated ahead
+ */
+public class LeafCertificateSigner {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /** below the 398 days browsers accept for server certificates */
+    private static final long VALIDITY_MS = 397 * DAY_MS;
+
+    private final X509Certificate rootCertificate;
+    private final PrivateKey rootPrivateKey;
+    private final String signatureAlgorithm;
+    private final SecureRandom random = new SecureRandom();
+
+    public LeafCertificateSigner(X509Certificate rootCertificate, PrivateKey rootPrivateKey) {
+        this.rootCertificate = rootCertificate;
+        this.rootPrivateKey = rootPrivateKey;
+        this.signatureAlgorithm = "EC".equals(rootPrivateKey.getAlgorithm()) ? "SHA256withECDSA" : "SHA256withRSA";
+    }
+
+    /**
+     * @param domain SNI host name (CN and DNS subject alternative name)
+     * @param keyPair key pair of the leaf certificate
+     * @return signed certificate with its private key
+     * @throws Exception when signing fails
+     */
+    public LeafCertificate sign(String domain, KeyPair keyPair) throws Exception {
+
+        long now = System.currentTimeMillis();
+
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                rootCertificate
+                , new BigInteger(64, random).add(BigInteger.ONE)
+                , new Date(now - DAY_MS)
+                , new Date(now + VALIDITY_MS)
+                , new X500Name("CN=" + domain)
+                , keyPair.getPublic()
+        );
+
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+
+        // key encipherment only applies to RSA key exchange
+        int keyUsage = "RSA".equals(keyPair.getPublic().getAlgorithm())
+                ? KeyUsage.digitalSignature | KeyUsage.keyEncipherment
+                : KeyUsage.digitalSignature;
+
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(keyUsage));
+        builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_serverAuth));
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName(GeneralName.dNSName, domain)));
+        builder.addExtension(Extension.subjectKeyIdentifier, false, extensionUtils.createSubjectKeyIdentifier(keyPair.getPublic()));
+        builder.addExtension(Extension.authorityKeyIdentifier, false, extensionUtils.createAuthorityKeyIdentifier(rootCertificate));
+
+        ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).build(rootPrivateKey);
+
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+
+        return new LeafCertificate(certificate, keyPair.getPrivate());
+    }
+}
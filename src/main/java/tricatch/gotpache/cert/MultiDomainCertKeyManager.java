@@ -7,29 +7,35 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.StandardConstants;
 import javax.net.ssl.X509ExtendedKeyManager;
 
-import io.github.tricatch.gotpache.cert.CertificateKeyPair;
-import io.github.tricatch.gotpache.cert.SSLCertificateCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tricatch.gotpache.cfg.attr.Cert;
 
 import java.net.Socket;
 import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MultiDomainCertKeyManager extends X509ExtendedKeyManager {
 
 	private static final Logger logger = LoggerFactory.getLogger(MultiDomainCertKeyManager.class);
 	
-    private final Map<String, CertificateKeyPair> certificates = new HashMap<>();
-    private final X509Certificate rootCertificate;
-    private final PrivateKey rootPrivateKey;
+    private final LeafCertificateCache certificates;
+    private final LeafCertificateSigner signer;
+    private final LeafCertificateStore store;
+    private final long renewBefore;
+    private final AtomicLong storeLoadCount = new AtomicLong(0);
+
+    public MultiDomainCertKeyManager(X509Certificate rootCertificate, PrivateKey rootPrivateKey) throws Exception {
+        this(rootCertificate, rootPrivateKey, new Cert());
+    }
 
-    public MultiDomainCertKeyManager(X509Certificate rootCertificate, PrivateKey rootPrivateKey){
-        this.rootCertificate = rootCertificate;
-        this.rootPrivateKey = rootPrivateKey;
+    public MultiDomainCertKeyManager(X509Certificate rootCertificate, PrivateKey rootPrivateKey, Cert cert) throws Exception {
+        this.signer = new LeafCertificateSigner(rootCertificate, rootPrivateKey);
+        this.store = cert.isStore() ? new LeafCertificateStore(cert.getStoreDir(), rootCertificate) : null;
+        this.renewBefore = cert.getRenewBefore();
+        this.certificates = new LeafCertificateCache(cert.getCacheSize(), cert.getRenewBefore());
     }
 
     @Override
@@ -47,12 +53,13 @@ public class MultiDomainCertKeyManager extends X509ExtendedKeyManager {
             }
         }
 
-        if( certificates.containsKey(domain) ) return domain;
-        
+        if( domain==null ) {
+            logger.warn( "No SNI host name - no certificate" );
+            return null;
+        }
+
         try {
-            SSLCertificateCreator sslCertificateCreator = new SSLCertificateCreator();
-            CertificateKeyPair certificateKeyPair = sslCertificateCreator.generateSSLCertificate(domain, rootCertificate, rootPrivateKey);
-            certificates.put(domain, certificateKeyPair);
+            certificates.get(domain, this::mint);
         	return domain;
         }catch(Exception e) {
         	logger.error( "errorGenCert-" + e.getMessage(), e );
@@ -61,6 +68,51 @@ public class MultiDomainCertKeyManager extends X509ExtendedKeyManager {
         return null;
     }
 
+    /**
+     * Certificate stored by a previous run, otherwise sign one with a key pair generated ahead
+     */
+    private LeafCertificate mint(String domain) throws Exception {
+
+        KeyPairPool keyPairPool = KeyPairPool.getInstance();
+
+        if (store != null) {
+            LeafCertificate stored = store.load(domain);
+            // a stored certificate of the other key type (cert.keyType changed) is minted again
+            if (stored != null
+                    && stored.getCertificate().getPublicKey().getAlgorithm().equals(keyPairPool.getKeyType())
+                    && stored.getCertificate().getNotAfter().getTime() - renewBefore > System.currentTimeMillis()) {
+                storeLoadCount.incrementAndGet();
+                return stored;
+            }
+        }
+
+        LeafCertificate leafCertificate = signer.sign(domain, keyPairPool.take());
+
+        if (store != null) store.save(domain, leafCertificate);
+
+        return leafCertificate;
+    }
+
+    /**
+     * Make sure the certificate of the domain is cached, ahead of its first handshake
+     * @param domain host name
+     * @throws Exception when minting fails
+     */
+    public void warmUp(String domain) throws Exception {
+        certificates.get(domain, this::mint);
+    }
+
+    /**
+     * Certificates served from the on-disk store instead of minted
+     */
+    public long getStoreLoadCount() {
+        return storeLoadCount.get();
+    }
+
+    public LeafCertificateCache getCertificates() {
+        return certificates;
+    }
+
     public String[] getServerAliases(String keyType, Principal[] issuers) {
         throw new UnsupportedOperationException("Method getServerAliases() not yet implemented.");
     }
@@ -76,9 +128,10 @@ public class MultiDomainCertKeyManager extends X509ExtendedKeyManager {
 
     public X509Certificate[] getCertificateChain(String alias) {
 
-    	if( certificates.containsKey(alias) ) {
+    	LeafCertificate leafCertificate = chosen(alias);
+    	if( leafCertificate!=null ) {
     		X509Certificate[] x509 = new X509Certificate[1];
-    		x509[0] = certificates.get(alias).getCertificate();
+    		x509[0] = leafCertificate.getCertificate();
     		return x509;
     	}
     	
@@ -88,11 +141,27 @@ public class MultiDomainCertKeyManager extends X509ExtendedKeyManager {
 	@Override
 	public PrivateKey getPrivateKey(String alias) {
 
-		if( certificates.containsKey(alias) ) {
-    		return certificates.get(alias).getPrivateKey();
+		LeafCertificate leafCertificate = chosen(alias);
+		if( leafCertificate!=null ) {
+    		return leafCertificate.getPrivateKey();
     	}
 		
 		return null;
 	}
 
+    /**
+     * Certificate of the alias chosen for the handshake - minted again if it was evicted since chooseServerAlias
+     */
+    private LeafCertificate chosen(String alias) {
+
+        LeafCertificate leafCertificate = certificates.peek(alias);
+        if( leafCertificate!=null || alias==null ) return leafCertificate;
+
+        try {
+            return certificates.get(alias, this::mint);
+        } catch (Exception e) {
+            logger.error( "errorGenCert-" + e.getMessage(), e );
+            return null;
+        }
+    }
 }
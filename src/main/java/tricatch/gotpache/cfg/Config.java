@@ -5,8 +5,11 @@ import tricatch.gotpache.cfg.attr.*;
 public class Config {
 
     private Https https;
+    private Http http;
     private Console console;
     private Ca ca;
+    private Upstream upstream = new Upstream();
+    private Cert cert = new Cert();
     private String serverName = "Gotpache Console";
 
     public Https getHttps() {
@@ -17,6 +20,14 @@ public class Config {
         this.https = https;
     }
 
+    public Http getHttp() {
+        return http;
+    }
+
+    public void setHttp(Http http) {
+        this.http = http;
+    }
+
     public Console getConsole(){
         return this.console;
     }
@@ -33,6 +44,22 @@ public class Config {
         this.ca = ca;
     }
 
+    public Upstream getUpstream() {
+        return upstream;
+    }
+
+    public void setUpstream(Upstream upstream) {
+        this.upstream = upstream;
+    }
+
+    public Cert getCert() {
+        return cert;
+    }
+
+    public void setCert(Cert cert) {
+        this.cert = cert;
+    }
+
     public String getServerName() {
         return serverName;
     }
@@ -2,7 +2,13 @@ package tricatch.gotpache.cfg;
 
 import tricatch.gotpache.server.VirtualHosts;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class VirtualHostsMap extends HashMap<String, VirtualHosts> {
+/**
+ * Virtual hosts per client id
+ *
+ * Each value is a snapshot: it is built completely before being published with a single put,
+ * and never modified afterwards. Readers get the old or the new table, never a partial one, without locking.
+ */
+public class VirtualHostsMap extends ConcurrentHashMap<String, VirtualHosts> {
 }
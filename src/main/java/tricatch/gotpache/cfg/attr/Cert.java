@@ -0,0 +1,76 @@
+package tricatch.gotpache.cfg.attr;
+
+public class Cert {
+    private int cacheSize = 1000;
+    private long renewBefore = 86400000;
+    private String keyType = "RSA";
+    private int keyPoolSize = 16;
+    private boolean store = true;
+    private String storeDir = "./conf/leaf";
+    private boolean warmup = true;
+    private int warmupConcurrency = 0;
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public long getRenewBefore() {
+        return renewBefore;
+    }
+
+    public void setRenewBefore(long renewBefore) {
+        this.renewBefore = renewBefore;
+    }
+
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public void setKeyType(String keyType) {
+        this.keyType = keyType;
+    }
+
+    public int getKeyPoolSize() {
+        return keyPoolSize;
+    }
+
+    public void setKeyPoolSize(int keyPoolSize) {
+        this.keyPoolSize = keyPoolSize;
+    }
+
+    public boolean isStore() {
+        return store;
+    }
+
+    public void setStore(boolean store) {
+        this.store = store;
+    }
+
+    public String getStoreDir() {
+        return storeDir;
+    }
+
+    public void setStoreDir(String storeDir) {
+        this.storeDir = storeDir;
+    }
+
+    public boolean isWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(boolean warmup) {
+        this.warmup = warmup;
+    }
+
+    public int getWarmupConcurrency() {
+        return warmupConcurrency;
+    }
+
+    public void setWarmupConcurrency(int warmupConcurrency) {
+        this.warmupConcurrency = warmupConcurrency;
+    }
+}
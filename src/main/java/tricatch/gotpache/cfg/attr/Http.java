@@ -1,9 +1,13 @@
 package tricatch.gotpache.cfg.attr;
 
+/**
+ * Plain HTTP listener, port 0 = disabled
+ */
 public class Http {
     private int port;
     private int connectTimeout;
     private int readTimeout;
+    private Listener listener = new Listener();
 
     public int getPort() {
         return port;
@@ -28,4 +32,12 @@ public class Http {
     public void setReadTimeout(int readTimeout) {
         this.readTimeout = readTimeout;
     }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
 }
@@ -1,9 +1,20 @@
 package tricatch.gotpache.cfg.attr;
 
+import java.util.List;
+
 public class Https {
     private int port;
     private int connectTimeout;
     private int readTimeout;
+    private Listener listener = new Listener();
+    private int drainTimeout = 30000;
+    private int handshakeConcurrency = 0;
+    private int handshakeTimeout = 10000;
+    private List<String> cipherSuites;
+    private List<String> namedGroups;
+    private int sessionCacheSize = 20000;
+    private int sessionTimeout = 86400;
+    private boolean sessionTicket = true;
 
     public int getPort() {
         return port;
@@ -28,4 +39,76 @@ public class Https {
     public void setReadTimeout(int readTimeout) {
         this.readTimeout = readTimeout;
     }
+
+    public int getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public void setDrainTimeout(int drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public int getHandshakeConcurrency() {
+        return handshakeConcurrency;
+    }
+
+    public void setHandshakeConcurrency(int handshakeConcurrency) {
+        this.handshakeConcurrency = handshakeConcurrency;
+    }
+
+    public int getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+
+    public void setHandshakeTimeout(int handshakeTimeout) {
+        this.handshakeTimeout = handshakeTimeout;
+    }
+
+    public List<String> getCipherSuites() {
+        return cipherSuites;
+    }
+
+    public void setCipherSuites(List<String> cipherSuites) {
+        this.cipherSuites = cipherSuites;
+    }
+
+    public List<String> getNamedGroups() {
+        return namedGroups;
+    }
+
+    public void setNamedGroups(List<String> namedGroups) {
+        this.namedGroups = namedGroups;
+    }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public boolean isSessionTicket() {
+        return sessionTicket;
+    }
+
+    public void setSessionTicket(boolean sessionTicket) {
+        this.sessionTicket = sessionTicket;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
 }
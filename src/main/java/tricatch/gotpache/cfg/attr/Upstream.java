@@ -0,0 +1,78 @@
+package tricatch.gotpache.cfg.attr;
+
+import java.util.List;
+
+public class Upstream {
+    private int maxIdle = 64;
+    private int maxPerHost = 8;
+    private int idleTimeout = 60000;
+    private int validateAfterInactivity = 2000;
+    private int tlsSessionCacheSize = 1000;
+    private int tlsSessionTimeout = 3600;
+    private boolean tlsSessionTicket = true;
+    private List<String> tlsProtocols;
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public void setMaxPerHost(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public boolean isTlsSessionTicket() {
+        return tlsSessionTicket;
+    }
+
+    public void setTlsSessionTicket(boolean tlsSessionTicket) {
+        this.tlsSessionTicket = tlsSessionTicket;
+    }
+
+    public List<String> getTlsProtocols() {
+        return tlsProtocols;
+    }
+
+    public void setTlsProtocols(List<String> tlsProtocols) {
+        this.tlsProtocols = tlsProtocols;
+    }
+}
@@ -8,6 +8,9 @@ public class VirtualDomain {
 
     private List<VirtualLocation> location;
 
+    /** answer plain HTTP requests with a 301 to https */
+    private boolean httpsRedirect = false;
+
     public String getDomain() {
         return domain;
     }
@@ -23,4 +26,12 @@ public class VirtualDomain {
     public void setLocation(List<VirtualLocation> location) {
         this.location = location;
     }
+
+    public boolean isHttpsRedirect() {
+        return httpsRedirect;
+    }
+
+    public void setHttpsRedirect(boolean httpsRedirect) {
+        this.httpsRedirect = httpsRedirect;
+    }
 }
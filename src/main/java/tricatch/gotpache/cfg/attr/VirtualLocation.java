@@ -7,6 +7,7 @@ public class VirtualLocation {
     private String host;
     private List<String> path;
     private List<String> header;
+    private String sni;
 
     public String getHost() {
         return host;
@@ -31,4 +32,12 @@ public class VirtualLocation {
     public void setHeader(List<String> header) {
         this.header = header;
     }
+
+    public String getSni() {
+        return sni;
+    }
+
+    public void setSni(String sni) {
+        this.sni = sni;
+    }
 }
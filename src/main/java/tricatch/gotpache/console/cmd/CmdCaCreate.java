@@ -9,7 +9,9 @@ import tricatch.gotpache.util.FreeMarkerUtil;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tricatch.gotpache.cert.LeafCertificateStore;
 import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Cert;
 import tricatch.gotpache.console.ConsoleCommand;
 import tricatch.gotpache.console.ConsoleResponse;
 import tricatch.gotpache.console.ConsoleResponseBuilder;
@@ -110,9 +112,11 @@ public class CmdCaCreate implements ConsoleCommand {
             try {
                 logger.info("Reloading configuration and SSL context...");
                 ProxyPassServer.initConfig();
-                ProxyPassServer.initSslContext();
-                ProxyPassServer.restartSslPassServer();
-                logger.info("Configuration and SSL server restarted successfully");
+                // leaf certificates signed by the previous CA are useless now
+                Cert cert = ProxyPassServer.getConfig().getCert();
+                LeafCertificateStore.clear(cert != null ? cert.getStoreDir() : new Cert().getStoreDir());
+                ProxyPassServer.reloadSslContext();
+                logger.info("Configuration and SSL context reloaded successfully");
             } catch (Exception reloadException) {
                 logger.error("Failed to reload configuration and SSL server", reloadException);
                 // Continue with response even if reload fails
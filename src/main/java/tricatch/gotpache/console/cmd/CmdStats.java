@@ -0,0 +1,114 @@
+package tricatch.gotpache.console.cmd;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.cert.CertificateWarmer;
+import tricatch.gotpache.cert.KeyPairPool;
+import tricatch.gotpache.cert.LeafCertificateCache;
+import tricatch.gotpache.cert.MultiDomainCertKeyManager;
+import tricatch.gotpache.console.ConsoleCommand;
+import tricatch.gotpache.console.ConsoleResponse;
+import tricatch.gotpache.console.ConsoleResponseBuilder;
+import tricatch.gotpache.pass.BufferPool;
+import tricatch.gotpache.pass.RelaySplice;
+import tricatch.gotpache.server.HandshakeStage;
+import tricatch.gotpache.upstream.UpstreamPool;
+import tricatch.gotpache.upstream.UpstreamTlsClient;
+import tricatch.gotpache.util.JsonUtil;
+import tricatch.gotpache.util.SSLUtil;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runtime counters as JSON (/stats)
+ */
+public class CmdStats implements ConsoleCommand {
+
+    private static final Logger logger = LoggerFactory.getLogger(CmdStats.class);
+
+    @Override
+    public ConsoleResponse execute(String uri, Map<String, String> params) throws IOException {
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+
+        HandshakeStage handshakeStage = HandshakeStage.getInstance();
+        Map<String, Object> handshake = new LinkedHashMap<>();
+        handshake.put("concurrency", handshakeStage.getConcurrency());
+        handshake.put("active", handshakeStage.getActive());
+        handshake.put("completed", handshakeStage.getCompleted());
+        handshake.put("totalMs", handshakeStage.getTotalMs());
+        handshake.put("fullHandshakes", handshakeStage.getFullHandshakes());
+        handshake.put("resumedHandshakes", handshakeStage.getResumedHandshakes());
+        handshake.put("latency", handshakeStage.getLatency());
+        handshake.put("failures", handshakeStage.getFailures());
+        stats.put("handshake", handshake);
+
+        MultiDomainCertKeyManager certKeyManager = SSLUtil.getCertKeyManager();
+        if (certKeyManager != null) {
+            LeafCertificateCache certificates = certKeyManager.getCertificates();
+            Map<String, Object> cert = new LinkedHashMap<>();
+            cert.put("cached", certificates.size());
+            cert.put("hit", certificates.getHitCount());
+            cert.put("minted", certificates.getMintCount());
+            cert.put("fromStore", certKeyManager.getStoreLoadCount());
+            cert.put("evicted", certificates.getEvictCount());
+            stats.put("certCache", cert);
+        }
+
+        Map<String, Object> warmup = new LinkedHashMap<>();
+        warmup.put("total", CertificateWarmer.getTotal());
+        warmup.put("done", CertificateWarmer.getDone());
+        warmup.put("failed", CertificateWarmer.getFailed());
+        warmup.put("elapsedMs", CertificateWarmer.getElapsedMs());
+        stats.put("certWarmup", warmup);
+
+        try {
+            KeyPairPool keyPairPool = KeyPairPool.getInstance();
+            Map<String, Object> keyPool = new LinkedHashMap<>();
+            keyPool.put("keyType", keyPairPool.getKeyType());
+            keyPool.put("ready", keyPairPool.getReady());
+            keyPool.put("hit", keyPairPool.getHitCount());
+            keyPool.put("miss", keyPairPool.getMissCount());
+            stats.put("keyPairPool", keyPool);
+        } catch (GeneralSecurityException e) {
+            logger.error("errorKeyPairPool - " + e.getMessage());
+        }
+
+        UpstreamPool upstreamPool = UpstreamPool.getInstance();
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("idle", upstreamPool.getIdleCount());
+        pool.put("hit", upstreamPool.getHitCount());
+        pool.put("miss", upstreamPool.getMissCount());
+        stats.put("upstreamPool", pool);
+
+        UpstreamTlsClient upstreamTlsClient = UpstreamTlsClient.getInstance();
+        Map<String, Object> tls = new LinkedHashMap<>();
+        tls.put("fullHandshakes", upstreamTlsClient.getFullHandshakes());
+        tls.put("resumedHandshakes", upstreamTlsClient.getResumedHandshakes());
+        stats.put("upstreamTls", tls);
+
+        Map<String, Object> buffers = new LinkedHashMap<>();
+        for (BufferPool bufferPool : new BufferPool[] { BufferPool.BODY, BufferPool.LINE, BufferPool.SPLICE }) {
+            Map<String, Object> buffer = new LinkedHashMap<>();
+            buffer.put("bufferSize", bufferPool.getBufferSize());
+            buffer.put("pooled", bufferPool.getPooled());
+            buffer.put("acquired", bufferPool.getAcquireCount());
+            buffer.put("allocated", bufferPool.getAllocateCount());
+            buffer.put("dropped", bufferPool.getDropCount());
+            buffers.put(bufferPool.getName(), buffer);
+        }
+        stats.put("bufferPool", buffers);
+
+        Map<String, Object> splice = new LinkedHashMap<>();
+        splice.put("bodies", RelaySplice.getBodyCount());
+        splice.put("bytes", RelaySplice.getByteCount());
+        stats.put("splice", splice);
+
+        if (logger.isDebugEnabled()) logger.debug("stats={}", stats);
+
+        return ConsoleResponseBuilder.ok(JsonUtil.pretty(stats), "application/json");
+    }
+}
@@ -160,6 +160,16 @@ public class HttpEventManager {
         }
     }
 
+    /**
+     * Whether events of the client reach a subscriber (otherwise they go to the DropConsumer)
+     * @param clientId client IP
+     */
+    public boolean hasEventConsumer(String clientId) {
+        if (clientId == null) return false;
+        ChannelConsumers channelConsumers = clientConsumers.get(clientId);
+        return channelConsumers != null && !channelConsumers.isEmpty();
+    }
+
     /**
      * Add subscriber for IP (clientId)
      */
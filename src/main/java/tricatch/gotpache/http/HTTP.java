@@ -6,9 +6,21 @@ public class HTTP {
     public static final int INIT_HEADER_LENGTH = 256;
     public static final int MAX_HEADER_LENGTH = 8 * 1024;
     public static final int BODY_BUFFER_SIZE = 16 * 1024;
+    /** Free body buffers kept for reuse (16MB) */
+    public static final int BODY_BUFFER_POOL_SIZE = 1024;
     /** Monitor body display limit (1MB). Bodies exceeding this are not collected for monitor. */
     public static final int MONITOR_BODY_LIMIT = 1024 * 1024;
     public static final int CHUNK_SIZE_LINE_LENGTH = 128;
+    /** Plain socket to plain socket body copy */
+    public static final int SPLICE_BUFFER_SIZE = 64 * 1024;
+    public static final int SPLICE_BUFFER_POOL_SIZE = 256;
+    /** Relay output buffer - body writes are coalesced up to this size */
+    public static final int WRITE_BUFFER_SIZE = 32 * 1024;
+    /** Latency budget of coalesced body writes (ms) */
+    public static final int FLUSH_DELAY = 20;
+    /** Chunks up to this size are flushed right away (streamed responses) */
+    public static final int SMALL_CHUNK_SIZE = 1024;
+    public static final int LINE_BUFFER_POOL_SIZE = 1024;
     public static final byte[] CRLF = "\r\n".getBytes();
     public static final byte SPACE = (byte)0x20;
 
@@ -21,4 +33,8 @@ public class HTTP {
         public static final byte[] UPGRADE = "Upgrade".getBytes();
     }
 
+    public static class MIME {
+        public static final String EVENT_STREAM = "text/event-stream";
+    }
+
 }
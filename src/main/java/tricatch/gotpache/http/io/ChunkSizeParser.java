@@ -0,0 +1,57 @@
+package tricatch.gotpache.http.io;
+
+/**
+ * Chunk size line of the chunked transfer coding, parsed on the line bytes without allocation
+ *
+ * chunk-size [ ";" chunk-ext ] - whitespace around the size is tolerated and extensions are skipped.
+ * Sizes up to Long.MAX_VALUE are accepted.
+ */
+public class ChunkSizeParser {
+
+    public static final long INVALID = -1;
+
+    /**
+     * @param line line bytes without CRLF
+     * @param off start of the line
+     * @param len length of the line
+     * @return chunk size, or INVALID when malformed or too large
+     */
+    public static long parse(byte[] line, int off, int len) {
+
+        int end = off + len;
+        int i = off;
+
+        while (i < end && isSpace(line[i])) i++;
+
+        long size = 0;
+        int digits = 0;
+
+        for (; i < end; i++) {
+            int digit = hex(line[i]);
+            if (digit < 0) break;
+            // one more digit would not fit in 63 bits
+            if ((size >>> 59) != 0) return INVALID;
+            size = (size << 4) | digit;
+            digits++;
+        }
+
+        if (digits == 0) return INVALID;
+
+        while (i < end && isSpace(line[i])) i++;
+
+        if (i < end && line[i] != ';') return INVALID;
+
+        return size;
+    }
+
+    static int hex(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,171 @@
+package tricatch.gotpache.http.io;
+
+import tricatch.gotpache.http.HTTP;
+
+/**
+ * Framing of a chunked body, checked while the raw bytes are copied in bulk
+ *
+ * chunk = size [";" ext] CRLF data CRLF, the last chunk (size 0) is followed by trailer lines up to an empty line.
+ * LF alone ends size and trailer lines (as readLine does), chunk data must end with CRLF.
+ * Chunk data is skipped without looking at the bytes.
+ */
+public class ChunkedFramer {
+
+    private enum State { SIZE, EXT, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER, TRAILER_LINE, TRAILER_LF, DONE, ERROR }
+
+    private State state = State.SIZE;
+    private long size = 0;
+    private int digits = 0;
+    private boolean sizeEnded = false;
+    private int lineLength = 0;
+    private long remaining = 0;
+    private boolean emptyLine = false;
+    private String error = null;
+
+    /**
+     * Advance over the bytes of the body
+     * @param buf bytes
+     * @param off start
+     * @param len available bytes
+     * @return bytes that belong to the body - stops after the last byte of the body or before a framing error
+     */
+    public int scan(byte[] buf, int off, int len) {
+
+        int i = off;
+        int end = off + len;
+
+        while (i < end && state != State.DONE && state != State.ERROR) {
+
+            byte b = buf[i];
+
+            switch (state) {
+
+                case SIZE:
+                    if (++lineLength > HTTP.CHUNK_SIZE_LINE_LENGTH) return fail(i, off, "chunk size line too long");
+                    int digit = ChunkSizeParser.hex(b);
+                    if (digit >= 0) {
+                        if (sizeEnded) return fail(i, off, "invalid chunk size");
+                        // one more digit would not fit in 63 bits
+                        if ((size >>> 59) != 0) return fail(i, off, "chunk size too large");
+                        size = (size << 4) | digit;
+                        digits++;
+                    } else if (b == ' ' || b == '\t') {
+                        if (digits > 0) sizeEnded = true;
+                    } else if (digits == 0) {
+                        return fail(i, off, "invalid chunk size");
+                    } else if (b == ';') {
+                        state = State.EXT;
+                    } else if (b == '\r') {
+                        state = State.SIZE_LF;
+                    } else if (b == '\n') {
+                        endSizeLine();
+                    } else {
+                        return fail(i, off, "invalid chunk size");
+                    }
+                    i++;
+                    break;
+
+                case EXT:
+                    if (++lineLength > HTTP.CHUNK_SIZE_LINE_LENGTH) return fail(i, off, "chunk size line too long");
+                    if (b == '\r') state = State.SIZE_LF;
+                    else if (b == '\n') endSizeLine();
+                    i++;
+                    break;
+
+                case SIZE_LF:
+                    if (b != '\n') return fail(i, off, "invalid chunk size line end");
+                    endSizeLine();
+                    i++;
+                    break;
+
+                case DATA:
+                    int n = (int) Math.min(remaining, end - i);
+                    remaining -= n;
+                    i += n;
+                    if (remaining == 0) state = State.DATA_CR;
+                    break;
+
+                case DATA_CR:
+                    if (b != '\r') return fail(i, off, "invalid chunk end marker");
+                    state = State.DATA_LF;
+                    i++;
+                    break;
+
+                case DATA_LF:
+                    if (b != '\n') return fail(i, off, "invalid chunk end marker");
+                    state = State.SIZE;
+                    i++;
+                    break;
+
+                case TRAILER:
+                    lineLength = 0;
+                    if (b == '\r') {
+                        emptyLine = true;
+                        state = State.TRAILER_LF;
+                    } else if (b == '\n') {
+                        state = State.DONE;
+                    } else {
+                        lineLength = 1;
+                        state = State.TRAILER_LINE;
+                    }
+                    i++;
+                    break;
+
+                case TRAILER_LINE:
+                    if (++lineLength > HTTP.MAX_HEADER_LENGTH) return fail(i, off, "chunk trailer too long");
+                    if (b == '\r') {
+                        emptyLine = false;
+                        state = State.TRAILER_LF;
+                    } else if (b == '\n') {
+                        state = State.TRAILER;
+                    }
+                    i++;
+                    break;
+
+                case TRAILER_LF:
+                    if (b != '\n') return fail(i, off, "invalid chunk trailer line end");
+                    state = emptyLine ? State.DONE : State.TRAILER;
+                    i++;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        return i - off;
+    }
+
+    /**
+     * The last chunk and its trailer have been scanned
+     */
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    public boolean isError() {
+        return state == State.ERROR;
+    }
+
+    /**
+     * Reason of the framing error, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    private void endSizeLine() {
+        remaining = size;
+        state = size == 0 ? State.TRAILER : State.DATA;
+        size = 0;
+        digits = 0;
+        sizeEnded = false;
+        lineLength = 0;
+    }
+
+    private int fail(int i, int off, String reason) {
+        state = State.ERROR;
+        error = reason;
+        return i - off;
+    }
+}
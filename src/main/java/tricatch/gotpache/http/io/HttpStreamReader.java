@@ -6,6 +6,7 @@ import tricatch.gotpache.http.HTTP;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * BufferedInputStream extension that provides line reading functionality
@@ -14,6 +15,9 @@ public class HttpStreamReader extends BufferedInputStream {
 
     //private static final Logger logger = LoggerFactory.getLogger(HttpStreamReader.class);
 
+    /** reads a plain (not TLS) socket */
+    private boolean plain = false;
+
     /**
      * Creates HttpStreamReader with specified buffer size
      * @param in input stream
@@ -23,9 +27,69 @@ public class HttpStreamReader extends BufferedInputStream {
         super(in, size);
     }
 
+    public boolean isPlain() {
+        return plain;
+    }
+
+    public void setPlain(boolean plain) {
+        this.plain = plain;
+    }
+
+    /**
+     * Bytes read ahead and not consumed yet
+     */
+    public synchronized int buffered() {
+        return count - pos;
+    }
+
+    /**
+     * Underlying stream - only read from it once {@link #buffered()} is 0
+     */
+    public InputStream getSource() {
+        return in;
+    }
+
+    /**
+     * Consume the CRLF that ends chunk data - compared in the buffer when both bytes are there
+     * @return true if the next two bytes were CR LF
+     * @throws IOException when I/O error occurs
+     */
+    public synchronized boolean readCrlf() throws IOException {
+        if (count - pos >= 2) {
+            boolean crlf = buf[pos] == '\r' && buf[pos + 1] == '\n';
+            pos += 2;
+            return crlf;
+        }
+        return read() == '\r' && read() == '\n';
+    }
+
+    /**
+     * Copy the bytes of a chunked body straight from the read buffer, as far as the framer accepts them
+     * Never consumes bytes past the end of the body (the next message of a keep-alive connection).
+     * @param framer framing state of the body
+     * @param out destination
+     * @return bytes copied, -1 at end of stream
+     * @throws IOException when I/O error occurs
+     */
+    public synchronized int transfer(ChunkedFramer framer, OutputStream out) throws IOException {
+
+        if (pos >= count) {
+            // refill through read(), then give the byte back
+            if (read() == -1) return -1;
+            pos--;
+        }
+
+        int n = framer.scan(buf, pos, count - pos);
+        out.write(buf, pos, n);
+        pos += n;
+
+        return n;
+    }
+
     /**
      * Reads a line up to the maximum length and stores it in the provided byte array
-     * Recognizes CRLF(\r\n) or LF(\n) as line terminators
+     * Recognizes CRLF(\r\n) or LF(\n) as line terminators, a CR not followed by LF stays in the line
+     * The read buffer is scanned for LF and each part of the line is copied at once - refilled only when the line goes on
      * Expands buffer by 2x when line terminator is not found, but does not exceed max
      * 
      * @param buffer byte array to store the line
@@ -33,7 +97,7 @@ public class HttpStreamReader extends BufferedInputStream {
      * @return actual number of bytes read, or -1 if end of stream is reached
      * @throws IOException when I/O error occurs
      */
-    public int readLine(ByteBuffer buffer, int max) throws IOException {
+    public synchronized int readLine(ByteBuffer buffer, int max) throws IOException {
         if (buffer == null) {
             throw new NullPointerException("Buffer cannot be null");
         }
@@ -44,53 +108,59 @@ public class HttpStreamReader extends BufferedInputStream {
             throw new IllegalArgumentException("Buffer length cannot exceed max (" + buffer.getBuffer().length + ", " + max + ")" );
         }
 
-        int bytesRead = 0;
-        int ch;
-        boolean foundCR = false;
+        // bytes stored so far - the last one may be the CR of the terminator
+        int length = 0;
 
-        while (bytesRead < max) {
-            ch = read();
-            
-            if (ch == -1) {
-                // End of stream reached
-                if (bytesRead > 0) {
-                    buffer.setLength(bytesRead);
-                    return bytesRead;
+        while (true) {
+
+            if (pos >= count) {
+                // refill through read(), then give the byte back
+                if (read() == -1) {
+                    // End of stream reached
+                    if (length > 0 && buffer.getBuffer()[length - 1] == '\r') length--;
+                    if (length == 0) return -1;
+                    return endLine(buffer, length, max);
                 }
-                return -1;
+                pos--;
             }
 
-            if (ch == '\r') {
-                foundCR = true;
-                continue;
-            }
+            int start = pos;
+            int lf = start;
+            while (lf < count && buf[lf] != '\n') lf++;
 
-            if (ch == '\n') {
-                // Found CRLF or LF, so end of line
-                buffer.setLength(bytesRead);
-                return bytesRead;
-            }
+            int n = lf - start;
 
-            if (foundCR) {
-                // CR followed by non-LF character, add CR to buffer
-                if (bytesRead >= buffer.getBuffer().length) {
-                    // Buffer is full, expand it
-                    expandBuffer(buffer, max);
-                }
-                buffer.getBuffer()[bytesRead++] = (byte) '\r';
-                foundCR = false;
+            // a line of max bytes may still be followed by the CR of its terminator
+            if (length + n > max) {
+                buffer.setLength(Math.min(length, buffer.getBuffer().length));
+                throw new IOException("Maximum line length (" + max + ") exceeded without finding line terminator");
             }
 
-            if (bytesRead >= buffer.getBuffer().length) {
+            while (length + n > buffer.getBuffer().length) {
                 // Buffer is full, expand it
                 expandBuffer(buffer, max);
             }
-            buffer.getBuffer()[bytesRead++] = (byte) ch;
+
+            System.arraycopy(buf, start, buffer.getBuffer(), length, n);
+            length += n;
+
+            if (lf < count) {
+                // Found CRLF or LF, so end of line
+                pos = lf + 1;
+                if (length > 0 && buffer.getBuffer()[length - 1] == '\r') length--;
+                return endLine(buffer, length, max);
+            }
+
+            pos = count;
         }
+    }
 
-        // Reached maximum length without finding line terminator
-        buffer.setLength(bytesRead);
-        throw new IOException("Maximum line length (" + max + ") exceeded without finding line terminator");
+    private int endLine(ByteBuffer buffer, int length, int max) throws IOException {
+        buffer.setLength(length);
+        if (length >= max) {
+            throw new IOException("Maximum line length (" + max + ") exceeded without finding line terminator");
+        }
+        return length;
     }
     
     /**
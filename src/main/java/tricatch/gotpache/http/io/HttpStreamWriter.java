@@ -4,12 +4,28 @@ import tricatch.gotpache.http.HTTP;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
+/**
+ * BufferedOutputStream for relaying, with a flush policy for bodies
+ *
+ * Body relays call {@link #flushIfIdle(InputStream)} instead of flush() after each read,
+ * so consecutive reads are coalesced into larger writes (fewer TLS records and syscalls).
+ */
 public class HttpStreamWriter extends BufferedOutputStream {
 
+    private static final long FLUSH_DELAY_NANOS = HTTP.FLUSH_DELAY * 1_000_000L;
+
+    /** flush on every flushIfIdle (streamed responses like SSE) */
+    private boolean immediateFlush = false;
+    /** nanoTime of the oldest unflushed write, 0 if nothing pending */
+    private long pendingSince = 0;
+    /** writes a plain (not TLS) socket */
+    private boolean plain = false;
+
     public HttpStreamWriter(OutputStream out) {
-        super(out);
+        super(out, HTTP.WRITE_BUFFER_SIZE);
     }
 
     public void writeHeaders(HeaderLines headerLines) throws IOException {
@@ -28,4 +44,58 @@ public class HttpStreamWriter extends BufferedOutputStream {
         flush();
     }
 
+    /**
+     * Flush pending body bytes when
+     * - the input has nothing more buffered (the next read may block),
+     * - the buffer is half full, or
+     * - the oldest pending byte waited FLUSH_DELAY ms
+     * otherwise keep them for the next write
+     * @param in input the body is read from
+     * @throws IOException when I/O error occurs
+     */
+    public synchronized void flushIfIdle(InputStream in) throws IOException {
+
+        if (count == 0) return;
+
+        if (immediateFlush || count >= buf.length / 2 || in.available() == 0) {
+            flush();
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (pendingSince == 0) {
+            pendingSince = now;
+        } else if (now - pendingSince >= FLUSH_DELAY_NANOS) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        pendingSince = 0;
+        super.flush();
+    }
+
+    public void setImmediateFlush(boolean immediateFlush) {
+        this.immediateFlush = immediateFlush;
+    }
+
+    public boolean isImmediateFlush() {
+        return immediateFlush;
+    }
+
+    public boolean isPlain() {
+        return plain;
+    }
+
+    public void setPlain(boolean plain) {
+        this.plain = plain;
+    }
+
+    /**
+     * Underlying stream - only write to it after flush()
+     */
+    public OutputStream getSink() {
+        return out;
+    }
 }
@@ -0,0 +1,74 @@
+package tricatch.gotpache.pass;
+
+import tricatch.gotpache.event.HttpEventManager;
+import tricatch.gotpache.http.HTTP;
+import tricatch.gotpache.http.io.HttpStream;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Copy of a relayed body for the monitor
+ *
+ * Nothing is copied when no subscriber watches the client, and at most MONITOR_BODY_LIMIT bytes otherwise -
+ * a longer body is replaced by a notice.
+ */
+class BodyCapture {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final HttpStream.Flow flow;
+    private ByteArrayOutputStream collector;
+    private boolean exceeded = false;
+
+    /**
+     * @param clientId client of the exchange
+     * @param flow REQ or RES
+     * @param contentLength body length if known, otherwise null
+     */
+    BodyCapture(String clientId, HttpStream.Flow flow, Integer contentLength) {
+
+        this.flow = flow;
+
+        if (!HttpEventManager.getInstance().hasEventConsumer(clientId)) return;
+
+        if (contentLength != null && contentLength > HTTP.MONITOR_BODY_LIMIT) {
+            this.exceeded = true;
+        } else {
+            this.collector = contentLength != null ? new ByteArrayOutputStream(contentLength) : new ByteArrayOutputStream();
+        }
+    }
+
+    /**
+     * Whether body bytes are copied - false without a subscriber or past the limit
+     */
+    boolean isCopying() {
+        return collector != null;
+    }
+
+    void write(byte[] buffer, int off, int len) {
+
+        if (collector == null) return;
+
+        if (collector.size() + len > HTTP.MONITOR_BODY_LIMIT) {
+            collector = null;
+            exceeded = true;
+            return;
+        }
+
+        collector.write(buffer, off, len);
+    }
+
+    /**
+     * Body for the event - the copy, the size notice, or empty when not captured
+     */
+    byte[] toBody() {
+
+        if (exceeded) {
+            String prefix = flow == HttpStream.Flow.REQ ? "Request" : "Response";
+            return (prefix + " body exceeds " + (HTTP.MONITOR_BODY_LIMIT / 1024 / 1024) + "MB and is not supported for display.").getBytes(StandardCharsets.UTF_8);
+        }
+
+        return collector != null ? collector.toByteArray() : EMPTY;
+    }
+}
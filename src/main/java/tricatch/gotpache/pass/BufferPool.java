@@ -0,0 +1,129 @@
+package tricatch.gotpache.pass;
+
+import tricatch.gotpache.http.HTTP;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable relay buffers of one size
+ *
+ * Free buffers are kept in striped, bounded lists. Virtual threads do not stay on one carrier,
+ * so a random stripe is picked per call (and its neighbour when empty/full) to spread contention.
+ * An empty pool allocates, a full pool drops the released buffer - it never blocks.
+ */
+public class BufferPool {
+
+    /** body relay buffers */
+    public static final BufferPool BODY = new BufferPool("body", HTTP.BODY_BUFFER_SIZE, HTTP.BODY_BUFFER_POOL_SIZE);
+
+    /** plain socket splice */
+    public static final BufferPool SPLICE = new BufferPool("splice", HTTP.SPLICE_BUFFER_SIZE, HTTP.SPLICE_BUFFER_POOL_SIZE);
+
+    /** chunk size and trailer lines */
+    public static final BufferPool LINE = new BufferPool("line", HTTP.CHUNK_SIZE_LINE_LENGTH, HTTP.LINE_BUFFER_POOL_SIZE);
+
+    private final String name;
+    private final int bufferSize;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder allocateCount = new LongAdder();
+    private final LongAdder dropCount = new LongAdder();
+
+    /**
+     * @param name name in stats
+     * @param bufferSize length of each buffer
+     * @param maxPooled max free buffers kept over all stripes
+     */
+    public BufferPool(String name, int bufferSize, int maxPooled) {
+
+        // power of two stripes, about cpu x 2
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() * 2 && count * 2 <= maxPooled) count <<= 1;
+
+        this.name = name;
+        this.bufferSize = bufferSize;
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxPooled / count));
+        }
+    }
+
+    /**
+     * Take a free buffer, or allocate one
+     */
+    public byte[] acquire() {
+
+        acquireCount.increment();
+
+        int i = ThreadLocalRandom.current().nextInt() & mask;
+
+        byte[] buffer = stripes[i].free.poll();
+        if (buffer == null) buffer = stripes[(i + 1) & mask].free.poll();
+        if (buffer != null) return buffer;
+
+        allocateCount.increment();
+        return new byte[bufferSize];
+    }
+
+    /**
+     * Give a buffer back - it must not be used by the caller anymore
+     * @param buffer buffer from acquire, null is ignored
+     */
+    public void release(byte[] buffer) {
+
+        if (buffer == null || buffer.length != bufferSize) return;
+
+        int i = ThreadLocalRandom.current().nextInt() & mask;
+
+        if (stripes[i].free.offer(buffer) || stripes[(i + 1) & mask].free.offer(buffer)) return;
+
+        dropCount.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getPooled() {
+        int pooled = 0;
+        for (Stripe stripe : stripes) pooled += stripe.free.size();
+        return pooled;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * Acquires that found no free buffer
+     */
+    public long getAllocateCount() {
+        return allocateCount.sum();
+    }
+
+    /**
+     * Releases that found the pool full
+     */
+    public long getDropCount() {
+        return dropCount.sum();
+    }
+
+    private static class Stripe {
+
+        private final ArrayBlockingQueue<byte[]> free;
+
+        private Stripe(int capacity) {
+            this.free = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package tricatch.gotpache.pass;
 
-import io.github.azagniotov.matcher.AntPathMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.attr.Https;
 import tricatch.gotpache.http.HTTP;
 import tricatch.gotpache.http.io.HttpStream;
 import tricatch.gotpache.http.io.HeaderLines;
@@ -14,20 +14,25 @@ import tricatch.gotpache.http.io.HttpStreamWriter;
 import tricatch.gotpache.event.HttpEvent;
 import tricatch.gotpache.event.HttpEventManager;
 import tricatch.gotpache.event.HttpEventType;
+import tricatch.gotpache.server.HandshakeStage;
 import tricatch.gotpache.server.VThreadExecutor;
 import tricatch.gotpache.server.VirtualHosts;
+import tricatch.gotpache.server.VirtualHostsRegistry;
 import tricatch.gotpache.server.VirtualPath;
+import tricatch.gotpache.server.VirtualRoutes;
+import tricatch.gotpache.upstream.UpstreamConnection;
+import tricatch.gotpache.upstream.UpstreamPool;
 import tricatch.gotpache.exception.BadGatewayException;
 import tricatch.gotpache.util.HtmlUtil;
 import tricatch.gotpache.util.SocketUtils;
 import tricatch.gotpache.util.SysUtil;
 
+import javax.net.ssl.SSLSocket;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.util.List;
 import java.util.concurrent.locks.LockSupport;
 
 public class PassRequestExecutor implements Stopable {
@@ -41,12 +46,23 @@ public class PassRequestExecutor implements Stopable {
     private Socket serverSocket = null;
     private HttpStreamReader serverIn = null;
     private HttpStreamWriter serverOut = null;
+    private UpstreamConnection upstream = null;
+    /** upstream was taken from the pool, it may have been closed by the server while idle */
+    private boolean upstreamPooled = false;
+    private PassResponseExecutor responseExecutor = null;
+    /** false while a request/response exchange is in flight on the upstream */
+    private volatile boolean exchangeComplete = true;
+    /** end the connection after the exchange in flight */
+    private volatile boolean draining = false;
+    /** blocked on the next request header of a keep-alive connection */
+    private volatile boolean waitingRequest = false;
     private VirtualPath preVirtualPath = null;
 
     private final int connectTimeout;
     private final int readTimeout;
+    private final VThreadExecutor executors;
 
-    private boolean stop = false;
+    private volatile boolean stop = false;
 
     private Thread thisThread = null;
     private volatile Thread child = null;
@@ -55,13 +71,19 @@ public class PassRequestExecutor implements Stopable {
     private String rid = uid;
     private int reqCounter = 0;
     private VirtualHosts virtualHosts = null;
+    /** registry version of virtualHosts, re-resolved only when it changes */
+    private long virtualHostsVersion = -1;
     private String clientId = null;
 
-    public PassRequestExecutor(Socket clientSocket, int connectTimeout, int readTimeout){
+    /**
+     * @param executors running executors of the listener that accepted the client
+     */
+    public PassRequestExecutor(Socket clientSocket, int connectTimeout, int readTimeout, VThreadExecutor executors){
 
         this.clientSocket = clientSocket;
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
+        this.executors = executors;
     }
 
     public void setStop(boolean stop){
@@ -72,6 +94,10 @@ public class PassRequestExecutor implements Stopable {
         return this.stop;
     }
 
+    public VThreadExecutor getExecutors(){
+        return this.executors;
+    }
+
     public Thread getChildThread(){
         return this.child;
     }
@@ -103,18 +129,34 @@ public class PassRequestExecutor implements Stopable {
             }
 
             thisThread = Thread.currentThread();
+
+            if (clientSocket instanceof SSLSocket sslSocket
+                    && !HandshakeStage.getInstance().handshake(this.uid, sslSocket, this.readTimeout)) {
+                return;
+            }
+
             clientIn = new HttpStreamReader(clientSocket.getInputStream(), HTTP.BODY_BUFFER_SIZE);
             clientOut = new HttpStreamWriter(clientSocket.getOutputStream());
+            clientIn.setPlain(!(clientSocket instanceof SSLSocket));
+            clientOut.setPlain(!(clientSocket instanceof SSLSocket));
 
             while (true) {
 
                 reqCounter++;
                 this.rid = this.uid + "-" + reqCounter;
-                this.virtualHosts = ProxyPassServer.getVirtualHosts(this.clientId, false);
+                resolveVirtualHosts();
+
+                //set before checking draining - drain() sets draining before checking waitingRequest
+                waitingRequest = true;
+                if (this.draining) {
+                    if (logger.isDebugEnabled()) logger.debug("{}, drained", rid);
+                    break;
+                }
 
                 //read-req-header
                 HeaderLines requestHeaders = new HeaderLines(HTTP.INIT_HEADER_LINES);
                 int bytesRead = clientIn.readHeaders(requestHeaders, HTTP.MAX_HEADER_LENGTH);
+                waitingRequest = false;
 
                 if (bytesRead == -1) {
                     logger.warn("{}, No headers received from client"
@@ -150,6 +192,10 @@ public class PassRequestExecutor implements Stopable {
                     );
                 }
 
+                if (!(clientSocket instanceof SSLSocket) && redirectToHttps(rid, httpRequest)) {
+                    break;
+                }
+
                 VirtualPath virtualPath = getVirtualPath(rid, httpRequest.getHost(), httpRequest.getPath());
 
                 boolean targetChanged = false;
@@ -170,28 +216,21 @@ public class PassRequestExecutor implements Stopable {
                     );
                 }
 
-                //create socket - url matched
-                if (serverSocket == null || targetChanged) {
-
-                    //create new server socket - new target route
-                    if (targetChanged && serverSocket != null) forceCloseServerSocket();
-
-                    serverSocket = createServerSocket(rid, httpRequest.getHost(), virtualPath);
-                    serverIn = new HttpStreamReader(serverSocket.getInputStream(), HTTP.BODY_BUFFER_SIZE);
-                    serverOut = new HttpStreamWriter(serverSocket.getOutputStream());
-
-                    String tName = Thread.currentThread().getName();
-                    if( tName.endsWith("x0") ) tName = tName.substring(0, tName.length()-1) + reqCounter;
+                //acquire socket - url matched
+                if (upstream == null || targetChanged) {
 
-                    child =  VThreadExecutor.run(
-                            new PassResponseExecutor(this, serverIn, clientOut)
-                            , tName
-                        );
+                    //release previous server socket - new target route
+                    if (targetChanged && upstream != null) releaseServerSocket(true);
 
+                    attachServerSocket(acquireServerSocket(rid, httpRequest.getHost(), virtualPath, true));
                 }
 
+                preVirtualPath = virtualPath;
+
                 //write-req-header
+                exchangeComplete = false;
                 serverOut.writeHeaders(requestHeaders);
+                responseExecutor.expectResponse();
 
                 if (HttpStream.WEBSOCKET == httpRequest.getHttpStream()) {
                     this.clientSocket.setSoTimeout(1000 * 60 * 5);
@@ -216,7 +255,22 @@ public class PassRequestExecutor implements Stopable {
                     break;
                 }
 
-                LockSupport.park();
+                //wait for the response relay
+                while (!this.stop && !responseExecutor.isIdle()) {
+                    LockSupport.park(this);
+                }
+
+                if (this.stop && retryOnNewServerSocket(rid, httpRequest, requestHeaders, virtualPath)) {
+                    while (!this.stop && !responseExecutor.isIdle()) {
+                        LockSupport.park(this);
+                    }
+                }
+
+                if (this.stop) {
+                    break;
+                }
+
+                exchangeComplete = true;
             }
         } catch (BadGatewayException e) {
             logger.error("{}, {}, Upstream connection failed: {}"
@@ -245,48 +299,169 @@ public class PassRequestExecutor implements Stopable {
         } catch (IOException e) {
             logger.error( uid + ", " + e.getMessage(), e);
         } finally {
-            VThreadExecutor.removeVirtualThread(Thread.currentThread());
+            executors.removeVirtualThread(Thread.currentThread());
             this.stop = true;
-            closeAll();
+            closeAll(true);
         }
 
 
     }
 
-    private void closeAll(){
+    private void closeAll(boolean reuseServerSocket){
 
         if( logger.isDebugEnabled() ){
             logger.debug( "{}, vtEnd & closeSocket, vtRes={}", this.uid, child != null ? child.getName() : "none" );
         }
 
-        if( serverIn !=null ) try{ serverIn.close(); }catch(Exception e){ logger.debug("Error closing serverIn: {}", e.getMessage()); }
-        if( serverOut !=null ) try{ serverOut.close(); }catch(Exception e){ logger.debug("Error closing serverOut: {}", e.getMessage()); }
-        if( serverSocket !=null ) try{ serverSocket.close(); }catch(Exception e){ logger.debug("Error closing serverSocket: {}", e.getMessage()); }
+        releaseServerSocket(reuseServerSocket);
 
         if( clientIn !=null ) try{  clientIn.close(); }catch (Exception e){ logger.debug("Error closing clientIn: {}", e.getMessage()); }
         if( clientOut !=null ) try{ clientOut.close(); }catch(Exception e){ logger.debug("Error closing clientOut: {}", e.getMessage()); }
         if( clientSocket !=null ) try{ clientSocket.close(); }catch(Exception e){ logger.debug("Error closing clientSocket: {}", e.getMessage()); }
 
-        serverIn = null;
-        serverOut = null;
-        serverSocket = null;
-
         clientIn = null;
         clientOut = null;
         clientSocket = null;
     }
 
-    private void forceCloseServerSocket(){
+    /**
+     * Detach the response executor and return the upstream connection to the pool,
+     * or close it when the last exchange did not complete with keep-alive
+     */
+    private void releaseServerSocket(boolean reuse){
 
-        if (serverIn != null)  try { serverIn.close();  } catch (Exception e) { logger.debug("Error closing previous serverIn: {}", e.getMessage()); }
-        if (serverOut != null) try { serverOut.close(); } catch (Exception e) { logger.debug("Error closing previous serverOut: {}", e.getMessage()); }
-        if (serverSocket != null) try { serverSocket.close(); } catch (Exception e) { logger.debug("Error closing previous serverSocket: {}", e.getMessage()); }
+        UpstreamConnection conn = this.upstream;
+        PassResponseExecutor executor = this.responseExecutor;
 
+        this.upstream = null;
+        this.responseExecutor = null;
+
+        if (conn != null) {
+            boolean reusable = executor != null && executor.detach() && exchangeComplete;
+            if (reuse && reusable) {
+                UpstreamPool.getInstance().release(conn);
+            } else {
+                conn.close();
+            }
+        }
+
+        exchangeComplete = true;
         serverIn = null;
         serverOut = null;
         serverSocket = null;
     }
 
+    /**
+     * Use the upstream connection for the next exchanges and start its response executor
+     */
+    private void attachServerSocket(UpstreamConnection conn) {
+
+        upstream = conn;
+        serverSocket = upstream.getSocket();
+        serverIn = upstream.getIn();
+        serverOut = upstream.getOut();
+
+        String tName = Thread.currentThread().getName();
+        if( tName.endsWith("x0") ) tName = tName.substring(0, tName.length()-1) + reqCounter;
+
+        responseExecutor = new PassResponseExecutor(this, serverIn, clientOut);
+        child =  executors.run(
+                responseExecutor
+                , tName
+            );
+    }
+
+    /**
+     * A pooled upstream the server had closed while idle (the close raced the liveness check) -
+     * send an idempotent request without body once more on a new connection
+     * @return true if the request was sent again
+     */
+    private boolean retryOnNewServerSocket(String rid, HttpRequest httpRequest, HeaderLines requestHeaders, VirtualPath virtualPath) throws IOException, BadGatewayException {
+
+        PassResponseExecutor executor = this.responseExecutor;
+
+        if (!upstreamPooled || executor == null || !executor.isUpstreamLost()) return false;
+        if (httpRequest.hasBody() || !isIdempotent(httpRequest.getMethod())) return false;
+
+        Socket socket = this.clientSocket;
+        if (socket == null || socket.isClosed()) return false;
+
+        logger.warn("{}, {}, Pooled upstream closed before responding, retry on a new connection - {}"
+                , rid
+                , HttpStream.Flow.REQ
+                , upstream
+        );
+
+        releaseServerSocket(false);
+        this.stop = false;
+
+        attachServerSocket(acquireServerSocket(rid, httpRequest.getHost(), virtualPath, false));
+
+        exchangeComplete = false;
+        serverOut.writeHeaders(requestHeaders);
+        responseExecutor.expectResponse();
+
+        return true;
+    }
+
+    private static boolean isIdempotent(String method) {
+        return "GET".equals(method)
+                || "HEAD".equals(method)
+                || "OPTIONS".equals(method)
+                || "TRACE".equals(method)
+                || "PUT".equals(method)
+                || "DELETE".equals(method);
+    }
+
+    private void resolveVirtualHosts() throws IOException {
+
+        VirtualHostsRegistry registry = VirtualHostsRegistry.getInstance();
+
+        // read the version first - a publish in between only causes one more lookup next time
+        long version = registry.getVersion();
+        if (this.virtualHosts != null && version == this.virtualHostsVersion) return;
+
+        this.virtualHosts = registry.get(this.clientId);
+        this.virtualHostsVersion = version;
+    }
+
+    /**
+     * Plain HTTP request for a domain with httpsRedirect - 301 to the same uri on the https listener
+     * @return true if redirected (the connection is closed, any request body is not read)
+     */
+    private boolean redirectToHttps(String rid, HttpRequest httpRequest) throws IOException {
+
+        VirtualRoutes routes = virtualHosts.find(httpRequest.getHost());
+        if (routes == null || !routes.isHttpsRedirect()) return false;
+
+        Https https = ProxyPassServer.getConfig().getHttps();
+        if (https == null || https.getPort() <= 0) {
+            logger.warn("{}, {}, httpsRedirect ignored, no https listener configured - {}"
+                    , rid
+                    , HttpStream.Flow.REQ
+                    , httpRequest.getHost()
+            );
+            return false;
+        }
+
+        int port = https.getPort();
+        String location = "https://" + VirtualHosts.normalize(httpRequest.getHost())
+                + (port == 443 ? "" : ":" + port)
+                + httpRequest.getPath();
+
+        HtmlUtil.writeRedirectResponse(clientOut, location);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}, {}, Redirect to {}"
+                    , rid
+                    , HttpStream.Flow.REQ
+                    , location
+            );
+        }
+
+        return true;
+    }
+
     private VirtualPath getVirtualPath(String rid, String vhost, String uri) throws IOException {
 
         if( logger.isDebugEnabled() ){
@@ -298,37 +473,57 @@ public class PassRequestExecutor implements Stopable {
             );
         }
 
-        List<VirtualPath> urls = virtualHosts.get(vhost);
+        VirtualRoutes routes = virtualHosts.find(vhost);
 
-        if( urls==null || urls.isEmpty()) throw new IOException( "Undefined vhost - " + vhost );
+        if( routes==null || routes.getPaths().isEmpty()) throw new IOException( "Undefined vhost - " + vhost );
 
-        VirtualPath virtualPath = null;
+        VirtualPath virtualPath = routes.match(uri);
 
-        for (VirtualPath vu : urls) {
-            AntPathMatcher pathMatcher = new AntPathMatcher.Builder().build();
-            boolean matched = pathMatcher.isMatch(vu.getPath(), uri);
+        if( virtualPath == null ) throw new IOException( "Not found path - " + uri + " -- " + vhost );
 
-            if (matched) {
-                virtualPath = vu;
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{}, {}, Reserved path - {}, {}, {}, {}"
-                            , rid
-                            , HttpStream.Flow.REQ
-                            , vhost
-                            , vu.getPath()
-                            , vu.getTarget()
-                            , uri
-                    );
-                }
-                break;
-            }
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}, {}, Reserved path - {}, {}, {}, {}"
+                    , rid
+                    , HttpStream.Flow.REQ
+                    , vhost
+                    , virtualPath.getPath()
+                    , virtualPath.getTarget()
+                    , uri
+            );
         }
 
-        if( virtualPath == null ) throw new IOException( "Not found path - " + uri + " -- " + vhost );
-
         return virtualPath;
     }
 
+    /**
+     * @param pooled take an idle pooled connection when there is one
+     */
+    private UpstreamConnection acquireServerSocket(String rid, String vhost, VirtualPath virtualPath, boolean pooled) throws BadGatewayException {
+
+        String key = UpstreamPool.keyOf(virtualPath.getTarget(), sniOf(vhost, virtualPath));
+
+        UpstreamConnection conn = pooled ? UpstreamPool.getInstance().acquire(key, this.readTimeout) : null;
+        this.upstreamPooled = conn != null;
+        if (conn != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}, {}, Reuse pooled socket - {}"
+                        , rid
+                        , HttpStream.Flow.REQ
+                        , conn
+                );
+            }
+            return conn;
+        }
+
+        Socket socket = createServerSocket(rid, vhost, virtualPath);
+        try {
+            return new UpstreamConnection(key, socket);
+        } catch (IOException e) {
+            try { socket.close(); } catch (Exception ce) { logger.debug("Error closing serverSocket: {}", ce.getMessage()); }
+            throw new BadGatewayException(rid, vhost, virtualPath.getTarget(), virtualPath.getPath(), e);
+        }
+    }
+
     private Socket createServerSocket(String rid, String vhost, VirtualPath virtualPath) throws BadGatewayException {
 
         if( logger.isDebugEnabled() ){
@@ -354,7 +549,7 @@ public class PassRequestExecutor implements Stopable {
                             , vhost
                     );
                 }
-                return SocketUtils.createHttps(vhost, target.getHost(), port, this.connectTimeout, this.readTimeout);
+                return SocketUtils.createHttps(sniOf(vhost, virtualPath), target.getHost(), port, this.connectTimeout, this.readTimeout);
             } else {
                 int port = target.getPort() <= 0 ? 80 : target.getPort();
                 if( logger.isDebugEnabled() ) logger.debug("{}, {}, Create HTTP {}:{} / {}"
@@ -371,9 +566,32 @@ public class PassRequestExecutor implements Stopable {
         }
     }
 
+    /**
+     * SNI for https targets - per-location sni, otherwise the requested virtual host without port
+     */
+    private static String sniOf(String vhost, VirtualPath virtualPath) {
+        String sni = virtualPath.getSni();
+        return sni != null && !sni.isEmpty() ? sni : VirtualHosts.normalize(vhost);
+    }
+
     @Override
     public void stop() {
-        this.closeAll();
+        this.closeAll(false);
+    }
+
+    /**
+     * Let the exchange in flight complete, then close.
+     * An idle keep-alive connection (waiting for the next request) is closed right away.
+     */
+    @Override
+    public void drain() {
+
+        this.draining = true;
+
+        if (this.waitingRequest) {
+            Socket socket = this.clientSocket;
+            if (socket != null) try { socket.close(); } catch (Exception e) { logger.debug("Error closing clientSocket: {}", e.getMessage()); }
+        }
     }
 
     @Override
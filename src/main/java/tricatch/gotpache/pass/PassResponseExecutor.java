@@ -7,11 +7,11 @@ import tricatch.gotpache.http.io.*;
 import tricatch.gotpache.event.HttpEvent;
 import tricatch.gotpache.event.HttpEventManager;
 import tricatch.gotpache.event.HttpEventType;
-import tricatch.gotpache.server.VThreadExecutor;
 
 import java.io.IOException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.LockSupport;
 
 public class PassResponseExecutor implements Stopable {
@@ -26,6 +26,18 @@ public class PassResponseExecutor implements Stopable {
 
     private String rid;
 
+    /** One permit per request written to the upstream */
+    private final Semaphore pending = new Semaphore(0);
+    /** No response outstanding - the upstream is between exchanges */
+    private volatile boolean idle = true;
+    /** Every response so far completed with keep-alive */
+    private volatile boolean reusable = true;
+    private volatile boolean detached = false;
+    /** response headers of the current exchange were written to the client */
+    private volatile boolean responseWritten = false;
+    /** the upstream closed or reset before any response of the current exchange was relayed */
+    private volatile boolean upstreamLost = false;
+
     public PassResponseExecutor(PassRequestExecutor passRequestExecutor, HttpStreamReader serverIn, HttpStreamWriter clientOut){
         this.passRequestExecutor = passRequestExecutor;
         this.serverIn = serverIn;
@@ -36,8 +48,6 @@ public class PassResponseExecutor implements Stopable {
     @Override
     public void run() {
 
-        int bytesRead;
-
         try {
 
             this.thisThread = Thread.currentThread();
@@ -48,68 +58,33 @@ public class PassResponseExecutor implements Stopable {
 
             while(true) {
 
-                // Fresh buffer per response: queued HttpEvent serializes async; reusing one HeaderLines lets the next readHeaders(clear) wipe it first.
-                HeaderLines responseHeaders = new HeaderLines(HTTP.INIT_HEADER_LINES);
+                pending.acquire();
 
-                //read-res-header
-                bytesRead = serverIn.readHeaders(responseHeaders, HTTP.MAX_HEADER_LENGTH);
-
-                this.rid = this.passRequestExecutor.getRid();
-
-                if (bytesRead == -1) {
-                    logger.warn("{}, No headers received from server"
-                            , rid
-                    );
+                if (detached) {
+                    if( logger.isDebugEnabled() ){
+                        logger.debug( "{}, vtDetach", this.passRequestExecutor.getUid() );
+                    }
                     return;
                 }
 
-                //parse-res-header
-                HttpResponse response = responseHeaders.parseHttpResponse();
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{}, {}, Response Headers\n{}"
-                            , rid
-                            , HttpStream.Flow.RES
-                            , responseHeaders
-                    );
-                    logger.debug("{}, {}, Response: {} {} {} (Body: {}, Connection: {}, ContentLength: {})"
-                            , rid
-                            , HttpStream.Flow.RES
-                            , response.getVersion()
-                            , response.getStatusCode()
-                            , response.getStatusMessage()
-                            , response.getBodyStream()
-                            , response.getConnection()
-                            , response.getContentLength()
-                    );
-                }
-
-                // Enqueue RES header HttpEvent
-                String clientId = this.passRequestExecutor.getClientId();
-                HttpEvent resHeaderEvent = new HttpEvent(clientId, this.rid, HttpEventType.RES_HEADER);
-                resHeaderEvent.setHeaders(responseHeaders);
-                HttpEventManager.getInstance().enqueue(resHeaderEvent);
-
-                //write-res-header
-                clientOut.writeHeaders(responseHeaders);
-
-                // Relay response body to client
-                HttpStream.Connection connection = RelayBody.relayResponseBody(clientId, rid, HttpStream.Flow.RES, response, serverIn, clientOut);
-                if (connection == HttpStream.Connection.CLOSE) {
-                    passRequestExecutor.setStop(true);
-                }
-
-                if( passRequestExecutor.isStop()
-                    || "Close".equalsIgnoreCase(response.getConnection())
-                ){
+                if (relayResponse()) {
+                    this.reusable = false;
                     break;
                 }
 
+                this.idle = true;
                 LockSupport.unpark(this.passRequestExecutor.getThread());
             }
 
+        } catch (InterruptedException e) {
+            this.reusable = false;
+            Thread.currentThread().interrupt();
         } catch (SocketTimeoutException e) {
+            this.reusable = false;
             logger.error(this.passRequestExecutor.getUid() + ", " + e.getMessage());
         } catch (SocketException e){
+            this.reusable = false;
+            if (!responseWritten) this.upstreamLost = true;
             if( "Connection reset".equals(e.getMessage())
                 || "Socket closed".equals(e.getMessage())
             ) {
@@ -118,15 +93,16 @@ public class PassResponseExecutor implements Stopable {
                 logger.error( this.passRequestExecutor.getUid() + ", " + e.getMessage(), e);
             }
         } catch (IOException e) {
+            this.reusable = false;
             logger.error( this.passRequestExecutor.getUid() + ", " + e.getMessage(), e);
         } finally {
 
-            VThreadExecutor.removeVirtualThread(Thread.currentThread());
+            passRequestExecutor.getExecutors().removeVirtualThread(Thread.currentThread());
 
             if( logger.isDebugEnabled() ){
                 logger.debug( "{}, vtEnd", this.passRequestExecutor.getUid() );
             }
-            if (passRequestExecutor.getChildThread() == this.thisThread) {
+            if (!detached && passRequestExecutor.getChildThread() == this.thisThread) {
                 passRequestExecutor.setStop(true);
                 LockSupport.unpark(this.passRequestExecutor.getThread());
             }
@@ -134,6 +110,117 @@ public class PassResponseExecutor implements Stopable {
 
     }
 
+    /**
+     * Read one response (skipping interim 1xx responses) and relay it to the client
+     * @return true if the upstream connection must not be used any more
+     * @throws IOException when I/O error occurs
+     */
+    private boolean relayResponse() throws IOException {
+
+        int bytesRead;
+
+        while(true) {
+
+            // Fresh buffer per response: queued HttpEvent serializes async; reusing one HeaderLines lets the next readHeaders(clear) wipe it first.
+            HeaderLines responseHeaders = new HeaderLines(HTTP.INIT_HEADER_LINES);
+
+            //read-res-header
+            bytesRead = serverIn.readHeaders(responseHeaders, HTTP.MAX_HEADER_LENGTH);
+
+            this.rid = this.passRequestExecutor.getRid();
+
+            if (bytesRead == -1) {
+                logger.warn("{}, No headers received from server"
+                        , rid
+                );
+                if (!responseWritten) this.upstreamLost = true;
+                return true;
+            }
+
+            //parse-res-header
+            HttpResponse response = responseHeaders.parseHttpResponse();
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}, {}, Response Headers\n{}"
+                        , rid
+                        , HttpStream.Flow.RES
+                        , responseHeaders
+                );
+                logger.debug("{}, {}, Response: {} {} {} (Body: {}, Connection: {}, ContentLength: {})"
+                        , rid
+                        , HttpStream.Flow.RES
+                        , response.getVersion()
+                        , response.getStatusCode()
+                        , response.getStatusMessage()
+                        , response.getBodyStream()
+                        , response.getConnection()
+                        , response.getContentLength()
+                );
+            }
+
+            // Enqueue RES header HttpEvent
+            String clientId = this.passRequestExecutor.getClientId();
+            HttpEvent resHeaderEvent = new HttpEvent(clientId, this.rid, HttpEventType.RES_HEADER);
+            resHeaderEvent.setHeaders(responseHeaders);
+            HttpEventManager.getInstance().enqueue(resHeaderEvent);
+
+            //write-res-header
+            this.responseWritten = true;
+            clientOut.writeHeaders(responseHeaders);
+
+            // Relay response body to client
+            HttpStream.Connection connection = RelayBody.relayResponseBody(clientId, rid, HttpStream.Flow.RES, response, serverIn, clientOut);
+            if (connection == HttpStream.Connection.CLOSE) {
+                passRequestExecutor.setStop(true);
+            }
+
+            // interim response (100 Continue, 103 Early Hints) - the final response follows on the same request
+            if (response.getStatusCode() >= 100 && response.getStatusCode() < 200 && response.getStatusCode() != 101) {
+                continue;
+            }
+
+            return passRequestExecutor.isStop()
+                || connection == HttpStream.Connection.CLOSE
+                || response.shouldCloseConnection();
+        }
+    }
+
+    /**
+     * Called by the request thread after a request has been written to the upstream
+     */
+    public void expectResponse() {
+        this.responseWritten = false;
+        this.idle = false;
+        this.pending.release();
+    }
+
+    public boolean isIdle() {
+        return this.idle;
+    }
+
+    /**
+     * The upstream went away before the response started - nothing of it reached the client
+     */
+    public boolean isUpstreamLost() {
+        return this.upstreamLost;
+    }
+
+    /**
+     * Let this executor end without closing the upstream connection
+     * @return true if the upstream connection is idle and can be reused
+     */
+    public boolean detach() {
+        this.detached = true;
+        this.pending.release();
+        return this.idle && this.reusable;
+    }
+
+    /**
+     * Ends together with the request executor, which drains the connection
+     */
+    @Override
+    public void drain() {
+    }
+
     @Override
     public void stop() {
 
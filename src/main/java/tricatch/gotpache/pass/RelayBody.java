@@ -3,6 +3,7 @@ package tricatch.gotpache.pass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import tricatch.gotpache.http.HTTP;
 import tricatch.gotpache.http.io.HttpStream;
 import tricatch.gotpache.http.io.HttpRequest;
 import tricatch.gotpache.http.io.HttpResponse;
@@ -10,6 +11,7 @@ import tricatch.gotpache.http.io.HttpStreamReader;
 import tricatch.gotpache.http.io.HttpStreamWriter;
 
 import java.io.IOException;
+import java.util.Locale;
 
 /**
  * Static class for handling HTTP response body relay operations
@@ -31,6 +33,9 @@ public class RelayBody {
      */
     public static HttpStream.Connection relayResponseBody(String clientId, String rid, HttpStream.Flow flow, HttpResponse response, HttpStreamReader in, HttpStreamWriter out) throws IOException {
         HttpStream httpStream = response.getBodyStream();
+
+        // server-sent events must reach the browser as they arrive
+        out.setImmediateFlush(isEventStream(response));
         
         if (logger.isDebugEnabled()) {
             logger.debug("{}, {}, Relaying body with type: {}"
@@ -129,12 +134,9 @@ public class RelayBody {
                 return HttpStream.Connection.KEEP_ALIVE;
         }
     }
-    
-
-    
-
-    
-
-    
 
+    private static boolean isEventStream(HttpResponse response) {
+        String contentType = response.getHeaders().getHeaderValueAsString(HTTP.HEADER.CONTENT_TYPE);
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(HTTP.MIME.EVENT_STREAM);
+    }
 }
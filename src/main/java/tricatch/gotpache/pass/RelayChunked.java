@@ -6,6 +6,8 @@ import org.slf4j.LoggerFactory;
 import tricatch.gotpache.http.HTTP;
 import tricatch.gotpache.http.io.HttpStream;
 import tricatch.gotpache.http.io.ByteBuffer;
+import tricatch.gotpache.http.io.ChunkSizeParser;
+import tricatch.gotpache.http.io.ChunkedFramer;
 import tricatch.gotpache.http.io.HttpStreamReader;
 import tricatch.gotpache.http.io.HttpStreamWriter;
 import tricatch.gotpache.event.HttpEvent;
@@ -39,143 +41,155 @@ public class RelayChunked {
             );
         }
 
-        ByteBuffer chunkSizeBuffer = new ByteBuffer(HTTP.CHUNK_SIZE_LINE_LENGTH);
-        ByteBuffer chunkTrailerBuffer = new ByteBuffer(HTTP.CHUNK_SIZE_LINE_LENGTH);
-        byte[] chunkBodyBuffer = new byte[HTTP.BODY_BUFFER_SIZE];
-        java.io.ByteArrayOutputStream bodyCollector = new java.io.ByteArrayOutputStream();
+        BodyCapture bodyCapture = new BodyCapture(clientId, flow, null);
+        HttpStream.Connection connection = HttpStream.Connection.KEEP_ALIVE;
+
+        if (!bodyCapture.isCopying()) {
+            connection = passthrough(rid, flow, in, out);
+        } else {
+            // chunk size and trailer lines are never read at the same time - one line buffer
+            byte[] lineBuffer = BufferPool.LINE.acquire();
+            ByteBuffer chunkSizeBuffer = new ByteBuffer(lineBuffer);
+            ByteBuffer chunkTrailerBuffer = chunkSizeBuffer;
+            byte[] chunkBodyBuffer = BufferPool.BODY.acquire();
         
-        while (true) {
-            // Read chunk size line
-            int bytesRead = in.readLine(chunkSizeBuffer, HTTP.CHUNK_SIZE_LINE_LENGTH);
-            
-            if (bytesRead == -1) {
-                logger.warn("{}, {}, Unexpected end of stream while reading chunk size"
-                        , rid
-                        , flow
-                );
-                break;
-            }
-            
-            String chunkSizeLine = new String(chunkSizeBuffer.getBuffer(), 0, chunkSizeBuffer.getLength());
-            int semicolonIndex = chunkSizeLine.indexOf(';');
-            if (semicolonIndex > 0) {
-                chunkSizeLine = chunkSizeLine.substring(0, semicolonIndex);
-            }
-            
-            int chunkSize;
             try {
-                chunkSize = Integer.parseInt(chunkSizeLine.trim(), 16);
-            } catch (NumberFormatException e) {
-                logger.error("{}, {}, Invalid chunk size: {}"
-                        , rid
-                        , flow
-                        , chunkSizeLine
-                );
-                break;
-            }
-
-            if (logger.isDebugEnabled()) {
-                logger.debug("{}, {}, Chunk size: {} / hx{}"
-                        , rid
-                        , flow
-                        , chunkSize
-                        , chunkSizeLine
-                );
-            }
-
-            // Write chunk size to client
-            out.write(chunkSizeBuffer.getBuffer(), 0, chunkSizeBuffer.getLength());
-            out.write(HTTP.CRLF);
+                while (true) {
+                    // Read chunk size line
+                    int bytesRead = in.readLine(chunkSizeBuffer, HTTP.CHUNK_SIZE_LINE_LENGTH);
             
-            if (chunkSize == 0) {
-
-                for(;;){
-                    bytesRead = in.readLine(chunkTrailerBuffer, HTTP.CHUNK_SIZE_LINE_LENGTH);
-                    if( bytesRead < 0 ){
-                        logger.warn("{}, {}, Unexpected end of stream while reading chunk trailer"
+                    if (bytesRead == -1) {
+                        logger.warn("{}, {}, Unexpected end of stream while reading chunk size"
                                 , rid
                                 , flow
                         );
+                        connection = HttpStream.Connection.CLOSE;
+                        break;
+                    }
+            
+                    long chunkSize = ChunkSizeParser.parse(chunkSizeBuffer.getBuffer(), 0, chunkSizeBuffer.getLength());
+                    if (chunkSize == ChunkSizeParser.INVALID) {
+                        logger.error("{}, {}, Invalid chunk size: {}"
+                                , rid
+                                , flow
+                                , chunkSizeBuffer
+                        );
+                        connection = HttpStream.Connection.CLOSE;
                         break;
                     }
 
-                    if( bytesRead>0 ){
-                        if( logger.isDebugEnabled() ){
-                            logger.debug("{}, {}, Chunk trailer: {}"
-                                    , rid
-                                    , flow
-                                    , new String(chunkTrailerBuffer.getBuffer(), 0, chunkTrailerBuffer.getLength())
-                            );
-                        }
-                        out.write(chunkTrailerBuffer.getBuffer(), 0, chunkTrailerBuffer.getLength());
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{}, {}, Chunk size: {} / hx{}"
+                                , rid
+                                , flow
+                                , chunkSize
+                                , chunkSizeBuffer
+                        );
                     }
 
+                    // Write chunk size to client
+                    out.write(chunkSizeBuffer.getBuffer(), 0, chunkSizeBuffer.getLength());
                     out.write(HTTP.CRLF);
-                    out.flush();
+            
+                    if (chunkSize == 0) {
 
-                    if( bytesRead == 0 ) break;
-                }
+                        for(;;){
+                            bytesRead = in.readLine(chunkTrailerBuffer, HTTP.CHUNK_SIZE_LINE_LENGTH);
+                            if( bytesRead < 0 ){
+                                logger.warn("{}, {}, Unexpected end of stream while reading chunk trailer"
+                                        , rid
+                                        , flow
+                                );
+                                connection = HttpStream.Connection.CLOSE;
+                                break;
+                            }
 
-                // End of chunked body - read and relay trailer headers
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{}, {}, End of chunked body (chunk size 0) - reading trailer headers"
-                            , rid
-                            , flow
-                    );
-                }
+                            if( bytesRead>0 ){
+                                if( logger.isDebugEnabled() ){
+                                    logger.debug("{}, {}, Chunk trailer: {}"
+                                            , rid
+                                            , flow
+                                            , new String(chunkTrailerBuffer.getBuffer(), 0, chunkTrailerBuffer.getLength())
+                                    );
+                                }
+                                out.write(chunkTrailerBuffer.getBuffer(), 0, chunkTrailerBuffer.getLength());
+                            }
+
+                            out.write(HTTP.CRLF);
+                            out.flush();
+
+                            if( bytesRead == 0 ) break;
+                        }
+
+                        // End of chunked body - read and relay trailer headers
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("{}, {}, End of chunked body (chunk size 0) - reading trailer headers"
+                                    , rid
+                                    , flow
+                            );
+                        }
                 
-                break;
-            }
+                        break;
+                    }
             
-            // Relay chunk data
-            int remainingBytes = chunkSize;
-            while (remainingBytes > 0) {
-                int bytesToRead = Math.min(chunkBodyBuffer.length, remainingBytes);
-                bytesRead = in.read(chunkBodyBuffer, 0, bytesToRead);
+                    // Relay chunk data
+                    long remainingBytes = chunkSize;
+                    while (remainingBytes > 0) {
+                        int bytesToRead = (int) Math.min(chunkBodyBuffer.length, remainingBytes);
+                        bytesRead = in.read(chunkBodyBuffer, 0, bytesToRead);
                 
-                if (bytesRead == -1) {
-                    logger.warn("{}, {}, Unexpected end of stream while reading chunk data"
-                            , rid
-                            , flow
-                    );
-                    break;
-                }
-                out.write(chunkBodyBuffer, 0, bytesRead);
-                out.flush();
+                        if (bytesRead == -1) {
+                            logger.warn("{}, {}, Unexpected end of stream while reading chunk data"
+                                    , rid
+                                    , flow
+                            );
+                            connection = HttpStream.Connection.CLOSE;
+                            break;
+                        }
+                        out.write(chunkBodyBuffer, 0, bytesRead);
+                        out.flushIfIdle(in);
                 
-                // Collect body data for logging
-                bodyCollector.write(chunkBodyBuffer, 0, bytesRead);
+                        // Collect body data for logging
+                        bodyCapture.write(chunkBodyBuffer, 0, bytesRead);
 
-                remainingBytes -= bytesRead;
+                        remainingBytes -= bytesRead;
                 
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{}, {}, Relayed {} bytes of chunk, remaining: {}"
-                            , rid
-                            , flow
-                            , bytesRead
-                            , remainingBytes
-                    );
-                }
-            }
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("{}, {}, Relayed {} bytes of chunk, remaining: {}"
+                                    , rid
+                                    , flow
+                                    , bytesRead
+                                    , remainingBytes
+                            );
+                        }
+                    }
+
+                    if (connection == HttpStream.Connection.CLOSE) break;
             
-            // Read and relay chunk end (CR-LF)
-            int cr = in.read();
-            int lf = in.read();
-            if (cr == '\r' && lf == '\n') {
-                out.write(HTTP.CRLF);
-                out.flush();
-            } else {
-                logger.warn("{}, {}, Invalid chunk end marker", rid, flow);
-                break;
+                    // Read and relay chunk end (CR-LF)
+                    if (in.readCrlf()) {
+                        out.write(HTTP.CRLF);
+                        // small chunks are usually streamed events - no coalescing
+                        if (chunkSize <= HTTP.SMALL_CHUNK_SIZE) out.flush();
+                        else out.flushIfIdle(in);
+                    } else {
+                        logger.warn("{}, {}, Invalid chunk end marker", rid, flow);
+                        connection = HttpStream.Connection.CLOSE;
+                        break;
+                    }
+                }
+            } finally {
+                BufferPool.BODY.release(chunkBodyBuffer);
+                BufferPool.LINE.release(lineBuffer);
             }
         }
-        
+
         out.flush();
         
         // Enqueue body HttpEvent
         HttpEvent bodyEvent = new HttpEvent(clientId, rid, 
             flow == HttpStream.Flow.REQ ? HttpEventType.REQ_BODY : HttpEventType.RES_BODY);
-        bodyEvent.setBody(bodyCollector.toByteArray());
+        bodyEvent.setBody(bodyCapture.toBody());
         bodyEvent.setHttpStream(HttpStream.CHUNKED);
         HttpEventManager.getInstance().enqueue(bodyEvent);
 
@@ -186,6 +200,53 @@ public class RelayChunked {
             );
         }
         
+        return connection;
+    }
+
+    /**
+     * Forward the raw chunked bytes in bulk (size lines, data and CRLFs together) while checking the framing,
+     * for bodies that are not captured
+     * @return CLOSE when the framing is broken or the stream ended early
+     */
+    private static HttpStream.Connection passthrough(String rid, HttpStream.Flow flow, HttpStreamReader in, HttpStreamWriter out) throws IOException {
+
+        ChunkedFramer framer = new ChunkedFramer();
+        long total = 0;
+
+        while (!framer.isDone()) {
+
+            int bytesRead = in.transfer(framer, out);
+
+            if (bytesRead == -1) {
+                logger.warn("{}, {}, Unexpected end of stream while relaying chunked body"
+                        , rid
+                        , flow
+                );
+                return HttpStream.Connection.CLOSE;
+            }
+
+            total += bytesRead;
+
+            if (framer.isError()) {
+                logger.error("{}, {}, Invalid chunked body: {}"
+                        , rid
+                        , flow
+                        , framer.getError()
+                );
+                return HttpStream.Connection.CLOSE;
+            }
+
+            out.flushIfIdle(in);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}, {}, Passed through {} bytes of chunked body"
+                    , rid
+                    , flow
+                    , total
+            );
+        }
+
         return HttpStream.Connection.KEEP_ALIVE;
     }
 }
@@ -3,7 +3,6 @@ package tricatch.gotpache.pass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import tricatch.gotpache.http.HTTP;
 import tricatch.gotpache.http.io.HttpStream;
 import tricatch.gotpache.http.io.HttpStreamReader;
 import tricatch.gotpache.http.io.HttpStreamWriter;
@@ -11,9 +10,7 @@ import tricatch.gotpache.event.HttpEvent;
 import tricatch.gotpache.event.HttpEventManager;
 import tricatch.gotpache.event.HttpEventType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Class for handling content-length based HTTP body relay operations
@@ -34,47 +31,49 @@ public class RelayContentLength {
             logger.debug("{}, {}, Relaying content-length body: {} bytes", rid, flow, contentLength);
         }
 
-        boolean exceedsLimit = contentLength > HTTP.MONITOR_BODY_LIMIT;
-        ByteArrayOutputStream bodyCollector = exceedsLimit ? null : new ByteArrayOutputStream(contentLength);
+        BodyCapture bodyCapture = new BodyCapture(clientId, flow, contentLength);
+        // a truncated body leaves the connection out of step - never reuse it
+        HttpStream.Connection connection = HttpStream.Connection.KEEP_ALIVE;
 
-        byte[] buffer = new byte[HTTP.BODY_BUFFER_SIZE];
-        int remainingBytes = contentLength;
+        if (RelaySplice.canSplice(in, out, bodyCapture)) {
+            if (RelaySplice.relay(rid, flow, contentLength, in, out) < contentLength) {
+                connection = HttpStream.Connection.CLOSE;
+            }
+        } else {
+            byte[] buffer = BufferPool.BODY.acquire();
+            int remainingBytes = contentLength;
 
-        while (remainingBytes > 0) {
-            int bytesToRead = Math.min(buffer.length, remainingBytes);
-            int bytesRead = in.read(buffer, 0, bytesToRead);
+            try {
+                while (remainingBytes > 0) {
+                    int bytesToRead = Math.min(buffer.length, remainingBytes);
+                    int bytesRead = in.read(buffer, 0, bytesToRead);
 
-            if (bytesRead == -1) {
-                logger.warn("{}, {}, Unexpected end of stream while reading content-length body", rid, flow);
-                break;
-            }
+                    if (bytesRead == -1) {
+                        logger.warn("{}, {}, Unexpected end of stream while reading content-length body", rid, flow);
+                        connection = HttpStream.Connection.CLOSE;
+                        break;
+                    }
 
-            out.write(buffer, 0, bytesRead);
-            out.flush();
+                    out.write(buffer, 0, bytesRead);
+                    out.flushIfIdle(in);
 
-            if (bodyCollector != null) {
-                bodyCollector.write(buffer, 0, bytesRead);
-            }
+                    bodyCapture.write(buffer, 0, bytesRead);
 
-            remainingBytes -= bytesRead;
+                    remainingBytes -= bytesRead;
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("{}, {}, Relayed {} bytes of body, remaining: {}", rid, flow, bytesRead, remainingBytes);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{}, {}, Relayed {} bytes of body, remaining: {}", rid, flow, bytesRead, remainingBytes);
+                    }
+                }
+            } finally {
+                BufferPool.BODY.release(buffer);
             }
         }
 
         out.flush();
 
-        byte[] bodyForEvent;
-        if (exceedsLimit) {
-            String prefix = flow == HttpStream.Flow.REQ ? "Request" : "Response";
-            bodyForEvent = (prefix + " body exceeds " + (HTTP.MONITOR_BODY_LIMIT / 1024 / 1024) + "MB and is not supported for display.").getBytes(StandardCharsets.UTF_8);
-        } else {
-            bodyForEvent = bodyCollector.toByteArray();
-        }
-
         HttpEvent bodyEvent = new HttpEvent(clientId, rid, flow == HttpStream.Flow.REQ ? HttpEventType.REQ_BODY : HttpEventType.RES_BODY);
-        bodyEvent.setBody(bodyForEvent);
+        bodyEvent.setBody(bodyCapture.toBody());
         bodyEvent.setHttpStream(HttpStream.CONTENT_LENGTH);
         HttpEventManager.getInstance().enqueue(bodyEvent);
 
@@ -82,6 +81,6 @@ public class RelayContentLength {
             logger.debug("{}, {}, Content-length body relay completed", rid, flow);
         }
 
-        return HttpStream.Connection.KEEP_ALIVE;
+        return connection;
     }
 }
@@ -0,0 +1,97 @@
+package tricatch.gotpache.pass;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tricatch.gotpache.http.io.HttpStream;
+import tricatch.gotpache.http.io.HttpStreamReader;
+import tricatch.gotpache.http.io.HttpStreamWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Body copy between two plain sockets, when nobody captures it
+ *
+ * Past the bytes the reader has already buffered, the body is read from one socket stream and
+ * written to the other through a 64KB pooled buffer - no reader/writer buffer copies and no flush policy.
+ */
+public class RelaySplice {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelaySplice.class);
+
+    private static final LongAdder bodyCount = new LongAdder();
+    private static final LongAdder byteCount = new LongAdder();
+
+    /**
+     * Whether the body can be spliced: plain on both sides and no bytes to capture for the monitor
+     */
+    static boolean canSplice(HttpStreamReader in, HttpStreamWriter out, BodyCapture bodyCapture) {
+        return in.isPlain() && out.isPlain() && !bodyCapture.isCopying();
+    }
+
+    /**
+     * @param rid Request ID for logging
+     * @param flow Body stream flow direction (REQ/RES)
+     * @param length body length, -1 until end of stream
+     * @param in Input stream reader
+     * @param out Output stream writer
+     * @return bytes relayed
+     * @throws IOException when I/O error occurs
+     */
+    static long relay(String rid, HttpStream.Flow flow, long length, HttpStreamReader in, HttpStreamWriter out) throws IOException {
+
+        out.flush();
+
+        InputStream source = in.getSource();
+        OutputStream sink = out.getSink();
+
+        byte[] buffer = BufferPool.SPLICE.acquire();
+        long remaining = length;
+        long total = 0;
+
+        try {
+            while (remaining != 0) {
+
+                int max = remaining < 0 ? buffer.length : (int) Math.min(buffer.length, remaining);
+
+                // bytes read ahead with the headers first
+                int buffered = in.buffered();
+                int bytesRead = buffered > 0
+                        ? in.read(buffer, 0, Math.min(max, buffered))
+                        : source.read(buffer, 0, max);
+
+                if (bytesRead == -1) {
+                    if (remaining > 0) logger.warn("{}, {}, Unexpected end of stream while splicing body", rid, flow);
+                    break;
+                }
+
+                sink.write(buffer, 0, bytesRead);
+
+                total += bytesRead;
+                if (remaining > 0) remaining -= bytesRead;
+            }
+        } finally {
+            BufferPool.SPLICE.release(buffer);
+            byteCount.add(total);
+        }
+
+        bodyCount.increment();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}, {}, Spliced {} bytes of body", rid, flow, total);
+        }
+
+        return total;
+    }
+
+    public static long getBodyCount() {
+        return bodyCount.sum();
+    }
+
+    public static long getByteCount() {
+        return byteCount.sum();
+    }
+}
@@ -3,7 +3,6 @@ package tricatch.gotpache.pass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import tricatch.gotpache.http.HTTP;
 import tricatch.gotpache.http.io.HttpStream;
 import tricatch.gotpache.http.io.HttpStreamReader;
 import tricatch.gotpache.http.io.HttpStreamWriter;
@@ -38,40 +37,50 @@ public class RelayUntilClose {
             );
         }
         
-        byte[] buffer = new byte[HTTP.BODY_BUFFER_SIZE];
-        int totalBytesRelayed = 0;
-        java.io.ByteArrayOutputStream bodyCollector = new java.io.ByteArrayOutputStream();
-        
-        while (true) {
-            int bytesRead = in.read(buffer);
+        long totalBytesRelayed = 0;
+        BodyCapture bodyCapture = new BodyCapture(clientId, flow, null);
+
+        if (RelaySplice.canSplice(in, out, bodyCapture)) {
+            totalBytesRelayed = RelaySplice.relay(rid, flow, -1, in, out);
+        } else {
+            byte[] buffer = BufferPool.BODY.acquire();
+
+            try {
+                while (true) {
+                    int bytesRead = in.read(buffer);
             
-            if (bytesRead == -1) {
-                // End of stream
-                break;
-            }
+                    if (bytesRead == -1) {
+                        // End of stream
+                        break;
+                    }
             
-            out.write(buffer, 0, bytesRead);
-            totalBytesRelayed += bytesRead;
+                    out.write(buffer, 0, bytesRead);
+                    out.flushIfIdle(in);
+                    totalBytesRelayed += bytesRead;
             
-            // Collect body data for logging
-            bodyCollector.write(buffer, 0, bytesRead);
+                    // Collect body data for logging
+                    bodyCapture.write(buffer, 0, bytesRead);
             
-            if (logger.isDebugEnabled()) {
-                logger.debug("{}, {}, Relayed {} bytes of body, total: {}"
-                        , rid
-                        , flow
-                        , bytesRead
-                        , totalBytesRelayed
-                );
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{}, {}, Relayed {} bytes of body, total: {}"
+                                , rid
+                                , flow
+                                , bytesRead
+                                , totalBytesRelayed
+                        );
+                    }
+                }
+            } finally {
+                BufferPool.BODY.release(buffer);
             }
         }
-        
+
         out.flush();
         
         // Enqueue body HttpEvent
         HttpEvent bodyEvent = new HttpEvent(clientId, rid, 
             flow == HttpStream.Flow.REQ ? HttpEventType.REQ_BODY : HttpEventType.RES_BODY);
-        bodyEvent.setBody(bodyCollector.toByteArray());
+        bodyEvent.setBody(bodyCapture.toBody());
         bodyEvent.setHttpStream(HttpStream.UNTIL_CLOSE);
         HttpEventManager.getInstance().enqueue(bodyEvent);
 
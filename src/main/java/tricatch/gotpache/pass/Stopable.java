@@ -4,5 +4,12 @@ public interface Stopable extends Runnable {
 
     public void stop();
 
+    /**
+     * Finish the work in progress and end - stop() by default
+     */
+    public default void drain() {
+        stop();
+    }
+
     public String getName();
 }
@@ -0,0 +1,155 @@
+package tricatch.gotpache.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tricatch.gotpache.cfg.attr.Listener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accept loops of one listener port
+ *
+ * acceptors threads accept in parallel. With reusePort each thread owns a socket bound with SO_REUSEPORT,
+ * so the kernel spreads new connections over separate accept queues; otherwise the threads share one socket.
+ * Accepted sockets get the tcpNoDelay and buffer size options before they are handed over.
+ */
+public class AcceptorGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcceptorGroup.class);
+
+    /**
+     * Takes over an accepted socket
+     */
+    public interface Handler {
+        void accepted(Socket socket) throws IOException;
+    }
+
+    private final String name;
+    private final Listener listener;
+    private final int acceptors;
+    private final List<ServerSocket> svrSockets = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param name thread name of the first acceptor, the others get -1, -2, ...
+     * @param listener accept options
+     */
+    public AcceptorGroup(String name, Listener listener) {
+        this.name = name;
+        this.listener = listener != null ? listener : new Listener();
+        this.acceptors = Math.max(1, this.listener.getAcceptors());
+    }
+
+    /**
+     * Bind the listener sockets
+     * @param port listener port
+     */
+    public synchronized void bind(int port) throws IOException {
+
+        boolean reusePort = listener.isReusePort() && acceptors > 1;
+        if (reusePort) {
+            try (ServerSocket probe = new ServerSocket()) {
+                if (!probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    logger.warn("SO_REUSEPORT not supported, {} acceptors share one socket", acceptors);
+                    reusePort = false;
+                }
+            }
+        }
+
+        int count = reusePort ? acceptors : 1;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                ServerSocket svrSocket = new ServerSocket();
+                svrSockets.add(svrSocket);
+                if (reusePort) svrSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                // set before bind, so the window scale of accepted sockets follows it
+                if (listener.getReceiveBufferSize() > 0) svrSocket.setReceiveBufferSize(listener.getReceiveBufferSize());
+                svrSocket.bind(new InetSocketAddress(port), listener.getBacklog());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+
+        // closed while binding
+        if (!running) close();
+
+        logger.info("{} bound: port={}, acceptors={}, sockets={}, backlog={}, tcpNoDelay={}"
+                , name, port, acceptors, count, listener.getBacklog(), listener.isTcpNoDelay());
+    }
+
+    /**
+     * Run the accept loops until closed - the first acceptor runs on the calling thread
+     * @param handler takes over accepted sockets
+     */
+    public void run(Handler handler) {
+
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 1; i < acceptors; i++) {
+            ServerSocket svrSocket = svrSockets.get(i % svrSockets.size());
+            Thread t = new Thread(() -> accept(svrSocket, handler), name + "-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+
+        accept(svrSockets.get(0), handler);
+
+        close();
+
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public synchronized void close() {
+        this.running = false;
+        for (ServerSocket svrSocket : svrSockets) {
+            try{ svrSocket.close(); }catch (Exception e){}
+        }
+    }
+
+    private void accept(ServerSocket svrSocket, Handler handler) {
+
+        try {
+
+            while (running) {
+
+                Socket socket = svrSocket.accept();
+
+                if (socket == null) continue;
+
+                try {
+                    configure(socket);
+                    handler.accepted(socket);
+                } catch (IOException e) {
+                    logger.error("errorAccepted - {}", e.getMessage());
+                    try{ socket.close(); } catch (Exception ignored){}
+                }
+            }
+
+        } catch (Exception e) {
+            if( !running || "Socket closed".equals(e.getMessage()) ) logger.error( "{} socket closed", name);
+            else logger.error("errorAccept - " + e.getMessage(), e);
+        }
+    }
+
+    private void configure(Socket socket) throws IOException {
+        socket.setTcpNoDelay(listener.isTcpNoDelay());
+        if (listener.getSendBufferSize() > 0) socket.setSendBufferSize(listener.getSendBufferSize());
+    }
+}
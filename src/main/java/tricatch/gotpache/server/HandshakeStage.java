@@ -0,0 +1,211 @@
+package tricatch.gotpache.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Https;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Client TLS handshakes, run explicitly before the first request is read
+ *
+ * - concurrency: at most handshakeConcurrency handshakes (leaf certificate minting included) at once,
+ *   the others wait for a slot within handshakeTimeout
+ * - timeout: handshakeTimeout applies to the handshake only, readTimeout is restored afterwards
+ * - metrics: latency histogram, full vs resumed handshakes and failures by cause
+ */
+public class HandshakeStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(HandshakeStage.class);
+
+    /** histogram upper bounds in ms, the last bucket counts everything slower */
+    private static final long[] BUCKETS = new long[]{ 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+    public static final String CAUSE_BUSY = "busy";
+    public static final String CAUSE_TIMEOUT = "timeout";
+    public static final String CAUSE_SSL = "ssl";
+    public static final String CAUSE_CLOSED = "closed";
+    public static final String CAUSE_IO = "io";
+
+    private static volatile HandshakeStage instance;
+
+    private final Semaphore slots;
+    private final int concurrency;
+    private final int handshakeTimeout;
+
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS.length + 1);
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong totalMs = new AtomicLong(0);
+    private final AtomicLong fullHandshakes = new AtomicLong(0);
+    private final AtomicLong resumedHandshakes = new AtomicLong(0);
+    private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+    private HandshakeStage(Https https) {
+
+        this.concurrency = https.getHandshakeConcurrency() > 0
+                ? https.getHandshakeConcurrency()
+                : Runtime.getRuntime().availableProcessors() * 2;
+        this.handshakeTimeout = https.getHandshakeTimeout();
+        this.slots = new Semaphore(this.concurrency, true);
+
+        logger.info("HandshakeStage initialized: concurrency={}, handshakeTimeout={}", this.concurrency, this.handshakeTimeout);
+    }
+
+    /**
+     * Get singleton instance (lazy init from config)
+     */
+    public static HandshakeStage getInstance() {
+        if (instance == null) {
+            synchronized (HandshakeStage.class) {
+                if (instance == null) {
+                    Config config = ProxyPassServer.getConfig();
+                    instance = new HandshakeStage(config != null && config.getHttps() != null ? config.getHttps() : new Https());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Complete the server handshake of an accepted socket
+     * @param uid connection id for logging
+     * @param socket accepted TLS socket
+     * @param readTimeout read timeout restored after the handshake
+     * @return true if handshaked, false if failed (already logged and counted)
+     */
+    public boolean handshake(String uid, SSLSocket socket, int readTimeout) {
+
+        long start = System.currentTimeMillis();
+        boolean acquired = false;
+
+        try {
+
+            acquired = slots.tryAcquire(handshakeTimeout, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                fail(uid, CAUSE_BUSY, "no handshake slot in " + handshakeTimeout + "ms");
+                return false;
+            }
+
+            // waiting for a slot counts against the handshake timeout
+            int remaining = (int) Math.max(1, handshakeTimeout - (System.currentTimeMillis() - start));
+            socket.setSoTimeout(remaining);
+            socket.startHandshake();
+            socket.setSoTimeout(readTimeout);
+
+            long elapsed = System.currentTimeMillis() - start;
+            record(elapsed);
+
+            // a resumed session keeps the creation time of the cached session (or ticket)
+            SSLSession session = socket.getSession();
+            boolean resumed = session.getCreationTime() < start;
+            if (resumed) resumedHandshakes.incrementAndGet();
+            else fullHandshakes.incrementAndGet();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}, handshake {}ms, {}, {}, resumed={}", uid, elapsed, session.getProtocol(), session.getCipherSuite(), resumed);
+            }
+
+            return true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(uid, CAUSE_CLOSED, "interrupted");
+        } catch (SocketTimeoutException e) {
+            fail(uid, CAUSE_TIMEOUT, e.getMessage());
+        } catch (SSLHandshakeException e) {
+            fail(uid, CAUSE_SSL, e.getMessage());
+        } catch (SocketException e) {
+            fail(uid, CAUSE_CLOSED, e.getMessage());
+        } catch (IOException e) {
+            fail(uid, CAUSE_IO, e.getMessage());
+        } finally {
+            if (acquired) slots.release();
+        }
+
+        return false;
+    }
+
+    private void record(long elapsed) {
+
+        int bucket = BUCKETS.length;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (elapsed <= BUCKETS[i]) {
+                bucket = i;
+                break;
+            }
+        }
+
+        latency.incrementAndGet(bucket);
+        completed.incrementAndGet();
+        totalMs.addAndGet(elapsed);
+    }
+
+    private void fail(String uid, String cause, String message) {
+        failures.computeIfAbsent(cause, k -> new AtomicLong(0)).incrementAndGet();
+        if (logger.isDebugEnabled()) logger.debug("{}, handshake failed - {}, {}", uid, cause, message);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Handshakes running now
+     */
+    public int getActive() {
+        return concurrency - slots.availablePermits();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getTotalMs() {
+        return totalMs.get();
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * Completed handshakes by latency bucket (le5ms ... gt5000ms)
+     */
+    public Map<String, Long> getLatency() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS.length; i++) {
+            histogram.put("le" + BUCKETS[i] + "ms", latency.get(i));
+        }
+        histogram.put("gt" + BUCKETS[BUCKETS.length - 1] + "ms", latency.get(BUCKETS.length));
+        return histogram;
+    }
+
+    /**
+     * Failed handshakes by cause
+     */
+    public Map<String, Long> getFailures() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : failures.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,88 @@
+package tricatch.gotpache.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Http;
+import tricatch.gotpache.pass.PassRequestExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain HTTP listener
+ *
+ * Same request executor as the HTTPS listener without TLS termination.
+ * Domains with httpsRedirect are answered with a 301 to https instead of being proxied.
+ */
+public class PassServer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PassServer.class);
+
+    private final AcceptorGroup acceptorGroup;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    /** connections accepted by this listener */
+    private final VThreadExecutor executors = new VThreadExecutor();
+
+    public PassServer() {
+        this.acceptorGroup = new AcceptorGroup("pt-http-pass", ProxyPassServer.getConfig().getHttp().getListener());
+    }
+
+    public void stop(){
+        this.acceptorGroup.close();
+    }
+
+    public VThreadExecutor getExecutors(){
+        return this.executors;
+    }
+
+    /**
+     * Wait until the accept loop has ended and the listener is closed
+     * @param timeoutMs max wait
+     * @return true if stopped
+     */
+    public boolean awaitStopped(long timeoutMs) throws InterruptedException {
+        return this.stopped.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void run() {
+
+        Config config = ProxyPassServer.getConfig();
+        String clazzName = this.getClass().getSimpleName();
+
+        try {
+
+            Thread.currentThread().setName("pt-http-pass");
+
+            Http http = config.getHttp();
+
+            logger.info("{} running...", clazzName);
+            logger.info("{} port: {}", clazzName, http.getPort());
+            logger.info("{} client.connect.timeout: {}", clazzName, http.getConnectTimeout() );
+            logger.info("{} client.read.timeout: {}", clazzName, http.getReadTimeout() );
+
+            acceptorGroup.bind(http.getPort());
+
+            acceptorGroup.run(socket -> {
+
+                if (logger.isDebugEnabled()){
+                    logger.debug("New client - h{}", socket.hashCode());
+                }
+
+                socket.setSoTimeout(http.getReadTimeout());
+
+                executors.run(new PassRequestExecutor(socket, http.getConnectTimeout(), http.getReadTimeout(), executors));
+            });
+
+        } catch (Exception e) {
+            logger.error("errorPassServer - " + e.getMessage(), e);
+        } finally {
+            acceptorGroup.close();
+        }
+
+        this.stopped.countDown();
+        logger.info("{} stopped...", clazzName);
+    }
+}
@@ -16,6 +16,7 @@ import tricatch.gotpache.console.cmd.CmdMonitor;
 import tricatch.gotpache.console.cmd.CmdMonitorEvent;
 import tricatch.gotpache.console.cmd.CmdProxyConfig;
 import tricatch.gotpache.console.cmd.CmdProxyConfigsSave;
+import tricatch.gotpache.console.cmd.CmdStats;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -39,6 +40,7 @@ public class ProxyPassConsole implements Runnable {
         commands.put("/ca/download", new CmdCaDownload());
         commands.put("/ca/generate", new CmdCaGenerate());
         commands.put("/ca/create", new CmdCaCreate());
+        commands.put("/stats", new CmdStats());
     }
 
     @Override
@@ -8,24 +8,67 @@ import tricatch.gotpache.cfg.Config;
 import tricatch.gotpache.cfg.attr.Https;
 import tricatch.gotpache.pass.PassRequestExecutor;
 
-import javax.net.ssl.SSLServerSocket;
-import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
 import java.net.Socket;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTPS listener
+ *
+ * The bound sockets are plain TCP and each accepted socket is layered with TLS from the current
+ * SSLContext, so a new context (CA rotation) applies to the next handshake without rebinding the port.
+ * Accepting runs on the acceptor threads of the https listener config.
+ */
 public class SSLPassServer implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(SSLPassServer.class);
 
-    private RunState runState = RunState.INIT;
-    private boolean running = true;
-    private SSLServerSocket sslSvrSocket = null;
+    private static final String[] PROTOCOLS = new String[] { "TLSv1.2", "TLSv1.3" };
+
+    private volatile RunState runState = RunState.INIT;
+    private final AcceptorGroup acceptorGroup;
+    private volatile TlsPolicy tlsPolicy = null;
+    private int port = -1;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    /** connections accepted by this listener */
+    private final VThreadExecutor executors = new VThreadExecutor();
 
     public SSLPassServer() {
+        this.acceptorGroup = new AcceptorGroup("pt-https-pass", ProxyPassServer.getConfig().getHttps().getListener());
     }
 
     public void stop(){
-        this.running = false;
-        if( this.sslSvrSocket!=null ) try{ this.sslSvrSocket.close(); }catch (Exception e){}
+        this.acceptorGroup.close();
+    }
+
+    /**
+     * Use a new SSLContext for connections accepted from now on, existing sessions are kept
+     * @param sslContext new context
+     */
+    public void updateSslContext(SSLContext sslContext){
+        this.tlsPolicy = new TlsPolicy(sslContext, ProxyPassServer.getConfig().getHttps());
+        logger.info("{} ssl context updated", this.getClass().getSimpleName());
+    }
+
+    /**
+     * Bound port, -1 before the listener is bound
+     */
+    public int getPort(){
+        return this.port;
+    }
+
+    public VThreadExecutor getExecutors(){
+        return this.executors;
     }
 
     public RunState getRunState(){
@@ -33,6 +76,15 @@ public class SSLPassServer implements Runnable {
         return this.runState;
     }
 
+    /**
+     * Wait until the accept loop has ended and the listener is closed
+     * @param timeoutMs max wait
+     * @return true if stopped
+     */
+    public boolean awaitStopped(long timeoutMs) throws InterruptedException {
+        return this.stopped.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
     public void run() {
 
         Config config = ProxyPassServer.getConfig();
@@ -49,18 +101,22 @@ public class SSLPassServer implements Runnable {
             logger.info("{} client.connect.timeout: {}", clazzName, https.getConnectTimeout() );
             logger.info("{} client.read.timeout: {}", clazzName, https.getReadTimeout() );
 
-            SSLServerSocketFactory ssf = ProxyPassServer.getSslContext().getServerSocketFactory();
-            sslSvrSocket = (SSLServerSocket) ssf.createServerSocket(https.getPort());
-            sslSvrSocket.setEnabledProtocols(new String[] { "TLSv1.2", "TLSv1.3" });
+            if( this.tlsPolicy==null ) this.tlsPolicy = new TlsPolicy(ProxyPassServer.getSslContext(), https);
+            acceptorGroup.bind(https.getPort());
+            this.port = https.getPort();
 
-            this.running = true;
             this.runState = RunState.RUNNING;
 
-            while (running) {
-
-                Socket socket = sslSvrSocket.accept();
+            acceptorGroup.run(tcpSocket -> {
 
-                if (socket == null) continue;
+                Socket socket;
+                try {
+                    socket = wrap(tcpSocket);
+                } catch (IOException e) {
+                    logger.error("errorSslWrap - {}", e.getMessage());
+                    try{ tcpSocket.close(); } catch (Exception ignored){}
+                    return;
+                }
 
                 if (logger.isDebugEnabled()){
                     logger.debug("New client - h{}", socket.hashCode());
@@ -68,17 +124,72 @@ public class SSLPassServer implements Runnable {
 
                 socket.setSoTimeout(https.getReadTimeout());
 
-                VThreadExecutor.run(new PassRequestExecutor(socket, https.getConnectTimeout(), https.getReadTimeout()));
-            }
+                executors.run(new PassRequestExecutor(socket, https.getConnectTimeout(), https.getReadTimeout(), executors));
+            });
 
         } catch (Exception e) {
-            if( "Socket closed".equals(e.getMessage()) ) logger.error( "sslPassServer socket closed");
-            else logger.error("errorSslPassServer - " + e.getMessage(), e);
+            logger.error("errorSslPassServer - " + e.getMessage(), e);
         } finally {
-            if( sslSvrSocket!=null ) try{ sslSvrSocket.close(); } catch (Exception e){}
+            acceptorGroup.close();
         }
 
         this.runState = RunState.STOPPED;
+        this.stopped.countDown();
         logger.info("{} stopped...", clazzName);
     }
+
+    /**
+     * Layer server-mode TLS over an accepted socket, the handshake runs on the first read
+     */
+    private Socket wrap(Socket tcpSocket) throws IOException {
+        TlsPolicy policy = this.tlsPolicy;
+        SSLSocket socket = (SSLSocket) policy.socketFactory.createSocket(tcpSocket, null, tcpSocket.getPort(), true);
+        socket.setUseClientMode(false);
+        socket.setSSLParameters(policy.parameters);
+        return socket;
+    }
+
+    /**
+     * Socket factory and handshake parameters of one SSLContext, swapped together
+     *
+     * Cipher suites and named groups follow the https config order (server preference),
+     * unsupported names are dropped, an empty list keeps the JDK defaults.
+     */
+    private static class TlsPolicy {
+
+        private final SSLSocketFactory socketFactory;
+        private final SSLParameters parameters;
+
+        private TlsPolicy(SSLContext sslContext, Https https) {
+
+            this.socketFactory = sslContext.getSocketFactory();
+            this.parameters = sslContext.getDefaultSSLParameters();
+            this.parameters.setProtocols(PROTOCOLS);
+
+            List<String> cipherSuites = https.getCipherSuites();
+            if (cipherSuites != null && !cipherSuites.isEmpty()) {
+                Set<String> supported = new HashSet<>(Arrays.asList(sslContext.getSupportedSSLParameters().getCipherSuites()));
+                List<String> enabled = new ArrayList<>();
+                for (String cipherSuite : cipherSuites) {
+                    if (supported.contains(cipherSuite)) enabled.add(cipherSuite);
+                    else logger.warn("Unsupported cipher suite - {}", cipherSuite);
+                }
+                if (!enabled.isEmpty()) {
+                    this.parameters.setCipherSuites(enabled.toArray(new String[0]));
+                    this.parameters.setUseCipherSuitesOrder(true);
+                }
+            }
+
+            List<String> namedGroups = https.getNamedGroups();
+            if (namedGroups != null && !namedGroups.isEmpty()) {
+                this.parameters.setNamedGroups(namedGroups.toArray(new String[0]));
+            }
+
+            logger.info("TLS policy: protocols={}, cipherSuites={}, namedGroups={}"
+                    , String.join(",", this.parameters.getProtocols())
+                    , cipherSuites == null || cipherSuites.isEmpty() ? "default" : String.join(",", this.parameters.getCipherSuites())
+                    , namedGroups == null || namedGroups.isEmpty() ? "default" : String.join(",", namedGroups)
+            );
+        }
+    }
 }
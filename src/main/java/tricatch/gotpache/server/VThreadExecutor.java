@@ -10,39 +10,89 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Running pass executors of one listener
+ *
+ * Each listener owns its instance, so draining or stopping one listener leaves the connections of the others alone.
+ */
 public class VThreadExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(VThreadExecutor.class);
 
     private static final AtomicLong threadCounter = new AtomicLong(0);
 
-    private static final Map<String, Stopable> runningExecutors  = new ConcurrentHashMap<>();
+    private final Map<String, Stopable> runningExecutors  = new ConcurrentHashMap<>();
 
-    public static Thread run(Stopable stopable) {
+    /** notified when the last running executor is removed */
+    private final Object drained = new Object();
 
-        long threadNumber = threadCounter.incrementAndGet();
-
-        Thread thread = Thread.ofVirtual().name("vt-pass-" + threadNumber +"x0").start(stopable);
+    public Thread run(Stopable stopable) {
 
-        runningExecutors.put(thread.getName(), stopable);
+        long threadNumber = threadCounter.incrementAndGet();
 
-        return thread;
+        return run(stopable, "vt-pass-" + threadNumber +"x0");
     }
 
-    public static Thread run(Stopable stopable, String name) {
+    public Thread run(Stopable stopable, String name) {
 
-        Thread thread = Thread.ofVirtual().name(name).start(stopable);
+        // registered before it starts - a short-lived executor must not remove itself before it is added
+        Thread thread = Thread.ofVirtual().name(name).unstarted(stopable);
 
         runningExecutors.put(thread.getName(), stopable);
 
+        thread.start();
+
         return thread;
     }
 
-    public static void removeVirtualThread(Thread thread){
+    public void removeVirtualThread(Thread thread){
         runningExecutors.remove(thread.getName());
+        if( runningExecutors.isEmpty() ){
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+
+    public int getRunningCount(){
+        return runningExecutors.size();
+    }
+
+    /**
+     * Ask every running executor to finish its work in progress, wait until all have ended,
+     * then stop the ones still running at the deadline
+     * @param timeoutMs drain deadline
+     * @return true if every executor ended before the deadline
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public boolean drainAll(long timeoutMs) throws InterruptedException {
+
+        for (Stopable stopable : runningExecutors.values()) {
+            try {
+                stopable.drain();
+            } catch (Exception e) {
+                logger.error("errorVtDrain - " + e.getMessage(), e);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (drained) {
+            long remaining;
+            while (!runningExecutors.isEmpty() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                drained.wait(remaining);
+            }
+        }
+
+        if (runningExecutors.isEmpty()) return true;
+
+        logger.warn("Drain timeout, stop {} running vt", runningExecutors.size());
+        stopAll();
+
+        return false;
     }
 
-    public static void stopAll(){
+    public void stopAll(){
 
         try {
             Set<String> names = runningExecutors.keySet();
@@ -1,7 +1,167 @@
 package tricatch.gotpache.server;
 
-import java.util.List;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
-public class VirtualHosts extends HashMap<String, List<VirtualPath>> {
+/**
+ * Virtual domains of one client, indexed by host name
+ *
+ * Domain entries:
+ * - foo.kr   : exact host (hash lookup)
+ * - *.foo.kr : any sub domain of foo.kr, the longest suffix wins
+ * - *        : default host, used when nothing else matches
+ *
+ * Host values are normalized (lower case, no port, no trailing dot) both when added and when looked up.
+ * A table is built once with {@link Builder} and never changes afterwards, so a published table is read without locking.
+ */
+public final class VirtualHosts {
+
+    public static final String DEFAULT_HOST = "*";
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    private final Map<String, VirtualRoutes> exact;
+    private final Map<String, VirtualRoutes> domains;
+    private final LabelNode wildcardRoot;
+    private final VirtualRoutes defaultRoutes;
+
+    private VirtualHosts(Builder builder) {
+        this.exact = Map.copyOf(builder.exact);
+        this.domains = Collections.unmodifiableMap(new LinkedHashMap<>(builder.domains));
+        this.wildcardRoot = builder.wildcardRoot.freeze();
+        this.defaultRoutes = builder.defaultRoutes;
+    }
+
+    /**
+     * Find the routes for a Host header value
+     * @param host host header (may carry a port)
+     * @return routes of the exact, wildcard or default host, null if none
+     */
+    public VirtualRoutes find(String host) {
+
+        String name = normalize(host);
+
+        VirtualRoutes routes = exact.get(name);
+        if (routes != null) return routes;
+
+        // walk reversed labels (a.b.foo.kr -> kr, foo, b, a), a wildcard only covers deeper labels
+        LabelNode node = wildcardRoot;
+        int end = name.length();
+        while (end > 0 && node != null) {
+            int dot = name.lastIndexOf('.', end - 1);
+            node = node.children.get(name.substring(dot + 1, end));
+            if (node == null || dot < 0) break;
+            if (node.routes != null) routes = node.routes;
+            end = dot;
+        }
+
+        return routes != null ? routes : defaultRoutes;
+    }
+
+    public VirtualRoutes getDefaultRoutes() {
+        return defaultRoutes;
+    }
+
+    /**
+     * Routes by configured domain name (exact, wildcard and default), in configuration order
+     */
+    public Map<String, VirtualRoutes> getDomains() {
+        return domains;
+    }
+
+    /**
+     * Lower case host name without port and trailing dot
+     * @param host host header value (foo.kr, FOO.kr:443, [::1]:8443)
+     * @return normalized host name
+     */
+    public static String normalize(String host) {
+
+        if (host == null) return "";
+
+        String name = host.trim();
+
+        if (name.startsWith("[")) {
+            int close = name.indexOf(']');
+            if (close > 0) name = name.substring(0, close + 1);
+        } else {
+            int colon = name.indexOf(':');
+            if (colon >= 0 && colon == name.lastIndexOf(':')) name = name.substring(0, colon);
+        }
+
+        if (name.endsWith(".")) name = name.substring(0, name.length() - 1);
+
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Collects the domains of one table - the first entry of a domain wins
+     */
+    public static class Builder {
+
+        private final Map<String, VirtualRoutes> exact = new HashMap<>();
+        private final Map<String, VirtualRoutes> domains = new LinkedHashMap<>();
+        private final BuildNode wildcardRoot = new BuildNode();
+        private VirtualRoutes defaultRoutes = null;
+
+        /**
+         * Register the routes of a configured domain
+         * @param domain exact host, *.suffix or * (default)
+         * @param routes compiled routes of the domain
+         */
+        public Builder add(String domain, VirtualRoutes routes) {
+
+            String name = domain == null ? "" : domain.trim().toLowerCase(Locale.ROOT);
+
+            domains.putIfAbsent(name, routes);
+
+            if (DEFAULT_HOST.equals(name)) {
+                if (defaultRoutes == null) defaultRoutes = routes;
+                return this;
+            }
+
+            if (name.startsWith(WILDCARD_PREFIX)) {
+                String suffix = normalize(name.substring(WILDCARD_PREFIX.length()));
+                BuildNode node = wildcardRoot;
+                String[] labels = suffix.split("\\.");
+                for (int i = labels.length - 1; i >= 0; i--) {
+                    node = node.children.computeIfAbsent(labels[i], k -> new BuildNode());
+                }
+                if (node.routes == null) node.routes = routes;
+                return this;
+            }
+
+            exact.putIfAbsent(normalize(name), routes);
+            return this;
+        }
+
+        public VirtualHosts build() {
+            return new VirtualHosts(this);
+        }
+    }
+
+    private static class BuildNode {
+
+        private final Map<String, BuildNode> children = new HashMap<>();
+        private VirtualRoutes routes = null;
+
+        private LabelNode freeze() {
+            Map<String, LabelNode> frozen = new HashMap<>();
+            for (Map.Entry<String, BuildNode> e : children.entrySet()) frozen.put(e.getKey(), e.getValue().freeze());
+            return new LabelNode(Map.copyOf(frozen), routes);
+        }
+    }
+
+    private static class LabelNode {
+
+        private final Map<String, LabelNode> children;
+        private final VirtualRoutes routes;
+
+        private LabelNode(Map<String, LabelNode> children, VirtualRoutes routes) {
+            this.children = children;
+            this.routes = routes;
+        }
+    }
 }
@@ -0,0 +1,301 @@
+package tricatch.gotpache.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.representer.Representer;
+import tricatch.gotpache.cert.CertificateWarmer;
+import tricatch.gotpache.cfg.VirtualHost;
+import tricatch.gotpache.cfg.VirtualHostsMap;
+import tricatch.gotpache.upstream.UpstreamPool;
+import tricatch.gotpache.util.VirtualHostUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual hosts of every client, loaded from conf/vhost/virtual-host-{clientId}.yml
+ *
+ * - startup: every existing client file is loaded eagerly
+ * - new client: loaded once off the connection thread, concurrent first connections share the same load
+ * - version: increases on every publish, connections keep their table until it changes
+ * - refresh: a file changed on disk is re-read and published only if its routes differ
+ */
+public class VirtualHostsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualHostsRegistry.class);
+
+    public static final String VHOST_DIR = "./conf/vhost";
+    public static final String FILE_PREFIX = "virtual-host-";
+    public static final String FILE_SUFFIX = ".yml";
+    private static final String DEFAULT_FILE = "virtual-host.yml";
+
+    private static final VirtualHostsRegistry instance = new VirtualHostsRegistry();
+
+    /**
+     * Reads the table of a client, creating its file from the default one
+     */
+    interface Loader {
+        VirtualHosts load(String clientId) throws IOException;
+    }
+
+    private final VirtualHostsMap virtualHostsMap = new VirtualHostsMap();
+    private final Map<String, CompletableFuture<VirtualHosts>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong(0);
+    private final Loader loader;
+
+    private VirtualHostsRegistry() {
+        this(clientId -> load(fileOf(clientId, true)));
+    }
+
+    VirtualHostsRegistry(Loader loader) {
+        this.loader = loader;
+    }
+
+    public static VirtualHostsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Load every client file in the vhost directory
+     */
+    public void loadAll() {
+
+        File[] files = new File(VHOST_DIR).listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) return;
+
+        for (File file : files) {
+            String clientId = clientIdOf(file.getName());
+            try {
+                publish(clientId, load(file));
+            } catch (Exception e) {
+                logger.error("Failed to load virtual hosts - {}, {}", file, e.getMessage());
+            }
+        }
+
+        logger.info("Loaded virtual hosts for {} clients from {}", virtualHostsMap.size(), VHOST_DIR);
+    }
+
+    /**
+     * Virtual hosts of the client, loading them on first use
+     * @param clientId client ip
+     * @return published virtual hosts
+     * @throws IOException when the client file cannot be loaded
+     */
+    public VirtualHosts get(String clientId) throws IOException {
+
+        CompletableFuture<VirtualHosts> future;
+
+        while (true) {
+
+            VirtualHosts virtualHosts = virtualHostsMap.get(clientId);
+            if (virtualHosts != null) return virtualHosts;
+
+            // single-flight - the first caller starts the load, the others wait on the same future.
+            // A load that completed since the check above has already published and left the loading map,
+            // so no new load is started for a published client (null maps to no entry).
+            future = loading.computeIfAbsent(clientId, id -> virtualHostsMap.containsKey(id) ? null :
+                    CompletableFuture.supplyAsync(() -> {
+                        try {
+                            VirtualHosts loaded = loader.load(id);
+                            publish(id, loaded);
+                            return loaded;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } finally {
+                            loading.remove(id);
+                        }
+                    }, VThreadExecutor.getExecutor())
+            );
+
+            if (future != null) break;
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Failed to load virtual hosts - " + clientId, cause);
+        }
+    }
+
+    /**
+     * Re-read the client file and publish the new table
+     * @param clientId client ip
+     * @return published virtual hosts
+     * @throws IOException when the client file cannot be loaded
+     */
+    public synchronized VirtualHosts reload(String clientId) throws IOException {
+
+        VirtualHosts old = virtualHostsMap.get(clientId);
+        VirtualHosts virtualHosts = loader.load(clientId);
+        publish(clientId, virtualHosts);
+        if (old != null) retireTargets(old);
+        CertificateWarmer.warmUp(virtualHosts.getDomains().keySet());
+
+        logger.info("Reloaded virtual hosts for client {}", clientId);
+
+        return virtualHosts;
+    }
+
+    /**
+     * Re-read a client file changed on disk, publishing it only when its routes differ.
+     * Idle pooled upstream connections to targets that no client routes to anymore are closed.
+     * @param clientId client ip
+     * @return true if a new table was published or the client was removed
+     * @throws IOException when the client file cannot be loaded
+     */
+    public synchronized boolean refresh(String clientId) throws IOException {
+
+        VirtualHosts old = virtualHostsMap.get(clientId);
+        File file = fileOf(clientId, false);
+
+        if (!file.exists()) {
+            if (old == null) return false;
+            virtualHostsMap.remove(clientId);
+            version.incrementAndGet();
+            retireTargets(old);
+            logger.info("Removed virtual hosts for client {}", clientId);
+            return true;
+        }
+
+        VirtualHosts loaded = load(file);
+
+        if (old != null && routesOf(old).equals(routesOf(loaded))) {
+            if (logger.isDebugEnabled()) logger.debug("Virtual hosts unchanged for client {}", clientId);
+            return false;
+        }
+
+        publish(clientId, loaded);
+        if (old != null) retireTargets(old);
+        CertificateWarmer.warmUp(loaded.getDomains().keySet());
+
+        logger.info("Refreshed virtual hosts for client {}", clientId);
+
+        return true;
+    }
+
+    /**
+     * Configured domain names of every client
+     */
+    public Set<String> getDomains() {
+        Set<String> domains = new LinkedHashSet<>();
+        for (VirtualHosts virtualHosts : virtualHostsMap.values()) {
+            domains.addAll(virtualHosts.getDomains().keySet());
+        }
+        return domains;
+    }
+
+    /**
+     * Current version, changed by every publish
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public static String clientIdOf(String fileName) {
+        return fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length());
+    }
+
+    private synchronized void publish(String clientId, VirtualHosts virtualHosts) {
+        // publish the new snapshot in one swap
+        virtualHostsMap.put(clientId, virtualHosts);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Close pooled connections to targets of the old table that no published table still uses
+     */
+    private void retireTargets(VirtualHosts old) {
+
+        Map<String, URL> retired = targetsOf(old);
+        for (VirtualHosts current : virtualHostsMap.values()) {
+            retired.keySet().removeAll(targetsOf(current).keySet());
+        }
+
+        for (URL target : retired.values()) {
+            int closed = UpstreamPool.getInstance().evict(target);
+            logger.info("Retired upstream target {}, closed={}", target, closed);
+        }
+    }
+
+    /**
+     * Targets by URL string (URL.equals resolves host names)
+     */
+    private static Map<String, URL> targetsOf(VirtualHosts virtualHosts) {
+        Map<String, URL> targets = new HashMap<>();
+        for (VirtualRoutes routes : virtualHosts.getDomains().values()) {
+            for (VirtualPath virtualPath : routes.getPaths()) {
+                targets.put(virtualPath.getTarget().toString(), virtualPath.getTarget());
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Comparable form of a table - domain to its ordered path rules
+     */
+    private static Map<String, List<String>> routesOf(VirtualHosts virtualHosts) {
+        Map<String, List<String>> routes = new HashMap<>();
+        for (Map.Entry<String, VirtualRoutes> entry : virtualHosts.getDomains().entrySet()) {
+            List<String> rules = new ArrayList<>();
+            if (entry.getValue().isHttpsRedirect()) rules.add("httpsRedirect");
+            for (VirtualPath virtualPath : entry.getValue().getPaths()) {
+                rules.add(virtualPath.getPath()
+                        + " " + virtualPath.getTarget()
+                        + " " + virtualPath.getSni()
+                        + " " + virtualPath.getAddHeader()
+                        + " " + virtualPath.getRemoveHeader());
+            }
+            routes.put(entry.getKey(), rules);
+        }
+        return routes;
+    }
+
+    private static File fileOf(String clientId, boolean create) throws IOException {
+
+        File vhClientFile = new File(VHOST_DIR + "/" + FILE_PREFIX + clientId + FILE_SUFFIX);
+
+        if (create && !vhClientFile.exists()) {
+            File vhDefaultFile = new File(VHOST_DIR + "/" + DEFAULT_FILE); // default
+            Files.copy(vhDefaultFile.toPath(), vhClientFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return vhClientFile;
+    }
+
+    private static VirtualHosts load(File file) throws IOException {
+
+        Representer representer = new Representer(new DumperOptions());
+        representer.getPropertyUtils().setSkipMissingProperties(true);
+        LoaderOptions loaderOptions = new LoaderOptions();
+
+        Constructor constructorVirtualHost = new Constructor(VirtualHost.class, loaderOptions);
+        Yaml yamlVirtualHost = new Yaml(constructorVirtualHost, representer);
+
+        try (InputStream in = new FileInputStream(file)) {
+            VirtualHost virtualHost = yamlVirtualHost.load(in);
+            return VirtualHostUtil.convert(virtualHost.getVirtual());
+        }
+    }
+}
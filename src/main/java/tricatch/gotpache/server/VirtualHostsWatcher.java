@@ -0,0 +1,103 @@
+package tricatch.gotpache.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches conf/vhost and refreshes the virtual hosts of a client whose file changed on disk
+ *
+ * Editors and the console write a file in several steps, so each file is refreshed
+ * only after it has been quiet for DEBOUNCE_MS.
+ */
+public class VirtualHostsWatcher implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualHostsWatcher.class);
+
+    private static final long DEBOUNCE_MS = 500;
+
+    /**
+     * Start watching on a daemon thread
+     */
+    public static void start() {
+        Thread t = new Thread(new VirtualHostsWatcher(), "pt-vhost-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void run() {
+
+        Path dir = Paths.get(VirtualHostsRegistry.VHOST_DIR);
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+
+            dir.register(watchService
+                    , StandardWatchEventKinds.ENTRY_CREATE
+                    , StandardWatchEventKinds.ENTRY_MODIFY
+                    , StandardWatchEventKinds.ENTRY_DELETE
+            );
+
+            logger.info("Watching virtual hosts in {}", dir);
+
+            // client id -> time of the last event
+            Map<String, Long> pending = new HashMap<>();
+
+            while (true) {
+
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                        String name = event.context().toString();
+                        if (!name.startsWith(VirtualHostsRegistry.FILE_PREFIX) || !name.endsWith(VirtualHostsRegistry.FILE_SUFFIX)) continue;
+                        pending.put(VirtualHostsRegistry.clientIdOf(name), System.currentTimeMillis());
+                    }
+                    if (!key.reset()) {
+                        logger.warn("Virtual hosts directory is no longer watched - {}", dir);
+                        return;
+                    }
+                }
+
+                long quiet = System.currentTimeMillis() - DEBOUNCE_MS;
+
+                Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (entry.getValue() > quiet) continue;
+                    it.remove();
+                    refresh(entry.getKey());
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("errorVhostWatch - " + e.getMessage(), e);
+        }
+    }
+
+    private void refresh(String clientId) {
+        try {
+            VirtualHostsRegistry.getInstance().refresh(clientId);
+        } catch (Exception e) {
+            // keep serving the previous table until the file is fixed
+            logger.error("Failed to refresh virtual hosts for client {} - {}", clientId, e.getMessage());
+        }
+    }
+}
@@ -9,6 +9,7 @@ public class VirtualPath {
     private URL target;
     private List<String> addHeader;
     private List<String> removeHeader;
+    private String sni;
 
     public String getPath() {
         return path;
@@ -41,4 +42,12 @@ public class VirtualPath {
     public void setRemoveHeader(List<String> removeHeader) {
         this.removeHeader = removeHeader;
     }
+
+    public String getSni() {
+        return sni;
+    }
+
+    public void setSni(String sni) {
+        this.sni = sni;
+    }
 }
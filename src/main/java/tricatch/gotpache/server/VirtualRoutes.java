@@ -0,0 +1,148 @@
+package tricatch.gotpache.server;
+
+import io.github.azagniotov.matcher.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled routes of one virtual domain
+ *
+ * Precedence is the position in the path list (exact paths first, then patterns, each reverse-sorted).
+ * Each index below answers "first match in list order", so a lookup never scans the whole list:
+ * - literal: paths without wildcards, compared as strings
+ * - prefix: {@code /a/b/**} patterns in a segment trie, walked once along the request path
+ * - wildcard: every other pattern, tried in order with a shared AntPathMatcher only while it can still win
+ * The literal and prefix indexes give the same answer as AntPathMatcher: a literal path also matches the uri
+ * without its trailing slashes, {@code /a/b/**} matches {@code /a/b} and {@code /a/b/...} only.
+ * Prefixes with empty segments ({@code //}) are left to the matcher.
+ */
+public class VirtualRoutes {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher.Builder().build();
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<VirtualPath> paths;
+    private final Map<String, Integer> literal = new HashMap<>();
+    private final PrefixNode prefixRoot = new PrefixNode();
+    private final int[] wildcard;
+    private final boolean httpsRedirect;
+
+    /**
+     * @param paths virtual paths in precedence order
+     */
+    public VirtualRoutes(List<VirtualPath> paths) {
+        this(paths, false);
+    }
+
+    /**
+     * @param paths virtual paths in precedence order
+     * @param httpsRedirect answer plain HTTP requests with a redirect to https
+     */
+    public VirtualRoutes(List<VirtualPath> paths, boolean httpsRedirect) {
+
+        this.httpsRedirect = httpsRedirect;
+        this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+
+        List<Integer> wildcardList = new ArrayList<>();
+
+        for (int i = 0; i < this.paths.size(); i++) {
+
+            String path = this.paths.get(i).getPath();
+
+            if (!hasWildcard(path)) {
+                // the matcher lets trailing slashes of the pattern go unmatched at the end of the uri
+                String key = path;
+                literal.putIfAbsent(key, i);
+                while (key.endsWith("/")) {
+                    key = key.substring(0, key.length() - 1);
+                    literal.putIfAbsent(key, i);
+                }
+            } else if (isPrefixPattern(path)) {
+                PrefixNode node = prefixRoot;
+                String prefix = path.substring(0, path.length() - 3);
+                if (!prefix.isEmpty()) {
+                    for (String segment : prefix.substring(1).split("/")) {
+                        node = node.children.computeIfAbsent(segment, k -> new PrefixNode());
+                    }
+                }
+                node.index = Math.min(node.index, i);
+            } else {
+                wildcardList.add(i);
+            }
+        }
+
+        this.wildcard = wildcardList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public List<VirtualPath> getPaths() {
+        return paths;
+    }
+
+    public boolean isHttpsRedirect() {
+        return httpsRedirect;
+    }
+
+    /**
+     * Find the virtual path for the request uri
+     * @param uri request path
+     * @return first matching virtual path in precedence order, or null
+     */
+    public VirtualPath match(String uri) {
+
+        if (uri == null) return null;
+
+        Integer exact = literal.get(uri);
+        int best = exact != null ? exact : NO_MATCH;
+
+        // prefix trie - every node on the request path is a /** pattern that matches,
+        // only for uris starting with / (or empty), an empty segment ends the walk
+        if (uri.isEmpty() || uri.charAt(0) == '/') {
+
+            PrefixNode node = prefixRoot;
+            best = Math.min(best, node.index);
+
+            int len = uri.length();
+            int start = 1;
+            while (start < len && node != null) {
+                int end = uri.indexOf('/', start);
+                if (end < 0) end = len;
+                node = end > start ? node.children.get(uri.substring(start, end)) : null;
+                if (node != null) best = Math.min(best, node.index);
+                start = end + 1;
+            }
+        }
+
+        for (int i : wildcard) {
+            if (i >= best) break;
+            if (PATH_MATCHER.isMatch(paths.get(i).getPath(), uri)) {
+                best = i;
+                break;
+            }
+        }
+
+        return best == NO_MATCH ? null : paths.get(best);
+    }
+
+    private static boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+
+    /**
+     * {@code /**} or {@code /literal/segments/**} without empty segments
+     */
+    private static boolean isPrefixPattern(String path) {
+        if (!path.startsWith("/") || !path.endsWith("/**")) return false;
+        String prefix = path.substring(0, path.length() - 3);
+        return !hasWildcard(prefix) && !prefix.contains("//") && !prefix.endsWith("/");
+    }
+
+    private static class PrefixNode {
+        private final Map<String, PrefixNode> children = new HashMap<>();
+        private int index = NO_MATCH;
+    }
+}
@@ -0,0 +1,108 @@
+package tricatch.gotpache.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.http.HTTP;
+import tricatch.gotpache.http.io.HttpStreamReader;
+import tricatch.gotpache.http.io.HttpStreamWriter;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Upstream (target server) socket with its reader/writer.
+ * The reader keeps its buffer across requests, so the socket and streams always travel together.
+ */
+public class UpstreamConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamConnection.class);
+
+    private final String key;
+    private final Socket socket;
+    private final HttpStreamReader in;
+    private final HttpStreamWriter out;
+    private volatile long lastUsed;
+
+    public UpstreamConnection(String key, Socket socket) throws IOException {
+        this.key = key;
+        this.socket = socket;
+        this.in = new HttpStreamReader(socket.getInputStream(), HTTP.BODY_BUFFER_SIZE);
+        this.out = new HttpStreamWriter(socket.getOutputStream());
+        this.in.setPlain(!(socket instanceof SSLSocket));
+        this.out.setPlain(!(socket instanceof SSLSocket));
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Socket getSocket() {
+        return socket;
+    }
+
+    public HttpStreamReader getIn() {
+        return in;
+    }
+
+    public HttpStreamWriter getOut() {
+        return out;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public void touch() {
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Check that the idle connection can carry the next request
+     * @param readTimeout read timeout restored on the socket after probing
+     * @param probe true to probe the socket with a 1ms read (detects FIN / stale connections)
+     * @return true if the connection looks alive
+     */
+    public boolean isAlive(int readTimeout, boolean probe) {
+
+        if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+
+        try {
+            // unsolicited bytes between responses - framing is lost
+            if (in.available() > 0) return false;
+
+            if (!probe) {
+                socket.setSoTimeout(readTimeout);
+                return true;
+            }
+
+            socket.setSoTimeout(1);
+            try {
+                // -1 means closed by peer, any byte means unsolicited data
+                in.read();
+                return false;
+            } catch (SocketTimeoutException e) {
+                socket.setSoTimeout(readTimeout);
+                return true;
+            }
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) logger.debug("Upstream liveness check failed - {}, {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    public void close() {
+        try { in.close(); } catch (Exception e) { logger.debug("Error closing upstream in: {}", e.getMessage()); }
+        try { out.close(); } catch (Exception e) { logger.debug("Error closing upstream out: {}", e.getMessage()); }
+        try { socket.close(); } catch (Exception e) { logger.debug("Error closing upstream socket: {}", e.getMessage()); }
+    }
+
+    @Override
+    public String toString() {
+        return key + "/h" + socket.hashCode();
+    }
+}
@@ -0,0 +1,212 @@
+package tricatch.gotpache.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Upstream;
+
+import java.net.URL;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idle keep-alive connection pool for upstream (target) servers, shared by all client connections
+ *
+ * Key: scheme://host:port (+ SNI for https, the TLS session is bound to it)
+ * - acquire: most recently used idle connection first, checked for liveness
+ * - release: kept while under maxPerHost / maxIdle, otherwise closed
+ * - evictor: closes connections idle longer than idleTimeout
+ */
+public class UpstreamPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamPool.class);
+
+    private static final long EVICT_INTERVAL_MS = 5000;
+
+    private static volatile UpstreamPool instance;
+
+    private final Map<String, Deque<UpstreamConnection>> idleConnections = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final ScheduledExecutorService evictor;
+    private final Upstream upstream;
+
+    private UpstreamPool(Upstream upstream) {
+
+        this.upstream = upstream != null ? upstream : new Upstream();
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pt-upstream-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, EVICT_INTERVAL_MS, EVICT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        logger.info("UpstreamPool initialized: maxIdle={}, maxPerHost={}, idleTimeout={}, validateAfterInactivity={}"
+                , this.upstream.getMaxIdle()
+                , this.upstream.getMaxPerHost()
+                , this.upstream.getIdleTimeout()
+                , this.upstream.getValidateAfterInactivity()
+        );
+    }
+
+    /**
+     * Get singleton instance (lazy init from config)
+     */
+    public static UpstreamPool getInstance() {
+        if (instance == null) {
+            synchronized (UpstreamPool.class) {
+                if (instance == null) {
+                    Config config = ProxyPassServer.getConfig();
+                    instance = new UpstreamPool(config != null ? config.getUpstream() : null);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Pool key of the target server
+     * @param target target URL
+     * @param sni server name for https targets
+     * @return pool key
+     */
+    public static String keyOf(URL target, String sni) {
+        if ("https".equals(target.getProtocol())) {
+            int port = target.getPort() <= 0 ? 443 : target.getPort();
+            return "https://" + target.getHost() + ":" + port + "/" + sni;
+        }
+        int port = target.getPort() <= 0 ? 80 : target.getPort();
+        return "http://" + target.getHost() + ":" + port;
+    }
+
+    /**
+     * Take an idle connection for the key
+     * @param key pool key
+     * @param readTimeout read timeout to apply to the reused socket
+     * @return live idle connection, or null if a new one must be created
+     */
+    public UpstreamConnection acquire(String key, int readTimeout) {
+
+        Deque<UpstreamConnection> deque = idleConnections.get(key);
+
+        if (deque != null) {
+            UpstreamConnection conn;
+            while ((conn = deque.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+
+                long idleMs = System.currentTimeMillis() - conn.getLastUsed();
+                boolean probe = idleMs >= upstream.getValidateAfterInactivity();
+
+                if (conn.isAlive(readTimeout, probe)) {
+                    hitCount.incrementAndGet();
+                    if (logger.isDebugEnabled()) logger.debug("Upstream pool hit - {}, idle={}ms", conn, idleMs);
+                    return conn;
+                }
+
+                if (logger.isDebugEnabled()) logger.debug("Upstream pool stale - {}, idle={}ms", conn, idleMs);
+                conn.close();
+            }
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Return a connection whose last response completed with keep-alive
+     * @param conn upstream connection
+     */
+    public void release(UpstreamConnection conn) {
+
+        if (conn == null) return;
+
+        Deque<UpstreamConnection> deque = idleConnections.computeIfAbsent(conn.getKey(), k -> new ConcurrentLinkedDeque<>());
+
+        if (deque.size() >= upstream.getMaxPerHost() || idleCount.get() >= upstream.getMaxIdle()) {
+            if (logger.isDebugEnabled()) logger.debug("Upstream pool full, close - {}", conn);
+            conn.close();
+            return;
+        }
+
+        conn.touch();
+        deque.offerFirst(conn);
+        idleCount.incrementAndGet();
+
+        if (logger.isDebugEnabled()) logger.debug("Upstream pool release - {}, idle={}", conn, idleCount.get());
+    }
+
+    /**
+     * Close every idle connection to a target that is no longer routed
+     * @param target target URL (all SNI variants of an https target)
+     * @return number of closed connections
+     */
+    public int evict(URL target) {
+
+        // keyOf with an empty SNI is the https key prefix, or the full http key
+        String base = keyOf(target, "");
+        boolean https = "https".equals(target.getProtocol());
+
+        int closed = 0;
+
+        for (Map.Entry<String, Deque<UpstreamConnection>> entry : idleConnections.entrySet()) {
+
+            String key = entry.getKey();
+            if (!(https ? key.startsWith(base) : key.equals(base))) continue;
+
+            UpstreamConnection conn;
+            while ((conn = entry.getValue().pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (logger.isDebugEnabled()) logger.debug("Upstream pool retire - {}", conn);
+                conn.close();
+                closed++;
+            }
+        }
+
+        return closed;
+    }
+
+    /**
+     * Close idle connections older than idleTimeout (oldest are at the tail)
+     */
+    private void evictIdle() {
+
+        try {
+            long expired = System.currentTimeMillis() - upstream.getIdleTimeout();
+
+            for (Deque<UpstreamConnection> deque : idleConnections.values()) {
+
+                for (UpstreamConnection conn : deque) {
+                    if (conn.getLastUsed() < expired && deque.removeFirstOccurrence(conn)) {
+                        idleCount.decrementAndGet();
+                        if (logger.isDebugEnabled()) logger.debug("Upstream pool evict - {}", conn);
+                        conn.close();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("errorUpstreamEvict - " + e.getMessage(), e);
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
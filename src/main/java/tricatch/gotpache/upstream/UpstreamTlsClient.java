@@ -0,0 +1,171 @@
+package tricatch.gotpache.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tricatch.gotpache.ProxyPassServer;
+import tricatch.gotpache.cfg.Config;
+import tricatch.gotpache.cfg.attr.Upstream;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide TLS client for https targets
+ *
+ * One trust-all SSLContext is shared by every upstream connection, so its client session cache
+ * lets reconnects to the same target/SNI resume the previous session (abbreviated handshake).
+ */
+public class UpstreamTlsClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamTlsClient.class);
+
+    private static final String[] DEFAULT_PROTOCOLS = new String[]{ "TLSv1.3", "TLSv1.2" };
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private static volatile UpstreamTlsClient instance;
+
+    private final SSLSocketFactory socketFactory;
+    private final String[] protocols;
+    private final AtomicLong fullHandshakes = new AtomicLong(0);
+    private final AtomicLong resumedHandshakes = new AtomicLong(0);
+
+    private UpstreamTlsClient(Upstream upstream) throws IOException {
+
+        TrustManager[] trustAllCerts = new TrustManager[]{
+                new X509TrustManager() {
+                    @Override
+                    public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                    }
+
+                    @Override
+                    public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                    }
+
+                    @Override
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+                }
+        };
+
+        try {
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(null, trustAllCerts, null);
+
+            SSLSessionContext sessionContext = sc.getClientSessionContext();
+            sessionContext.setSessionCacheSize(upstream.getTlsSessionCacheSize());
+            sessionContext.setSessionTimeout(upstream.getTlsSessionTimeout());
+
+            this.socketFactory = sc.getSocketFactory();
+        } catch (Exception e) {
+            throw new IOException("Upstream TLS init error - " + e.getMessage(), e);
+        }
+
+        List<String> tlsProtocols = upstream.getTlsProtocols();
+        this.protocols = tlsProtocols == null || tlsProtocols.isEmpty()
+                ? DEFAULT_PROTOCOLS
+                : tlsProtocols.toArray(new String[0]);
+
+        logger.info("UpstreamTlsClient initialized: protocols={}, sessionCacheSize={}, sessionTimeout={}s, sessionTicket={}"
+                , String.join(",", this.protocols)
+                , upstream.getTlsSessionCacheSize()
+                , upstream.getTlsSessionTimeout()
+                , upstream.isTlsSessionTicket()
+        );
+    }
+
+    /**
+     * Get singleton instance (lazy init from config)
+     */
+    public static UpstreamTlsClient getInstance() throws IOException {
+        if (instance == null) {
+            synchronized (UpstreamTlsClient.class) {
+                if (instance == null) {
+                    Config config = ProxyPassServer.getConfig();
+                    Upstream upstream = config != null && config.getUpstream() != null ? config.getUpstream() : new Upstream();
+                    instance = new UpstreamTlsClient(upstream);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * IPv4 dotted quad, or IPv6 (bracketed or with colons) - SNI carries host names only
+     */
+    static boolean isIpLiteral(String host) {
+        if (host.indexOf(':') >= 0 || host.startsWith("[")) return true;
+        return IPV4.matcher(host).matches();
+    }
+
+    /**
+     * Layer TLS over a connected socket and complete the handshake
+     * @param tcpSocket connected plain socket (closed together with the returned socket)
+     * @param sni server name sent to the target, also the session cache key with port
+     * @param port target port
+     * @return handshaked SSL socket
+     * @throws IOException when the handshake fails
+     */
+    public SSLSocket handshake(Socket tcpSocket, String sni, int port) throws IOException {
+
+        SSLSocket socket = (SSLSocket) socketFactory.createSocket(tcpSocket, sni, port, true);
+        socket.setEnabledProtocols(protocols);
+
+        // no SNI for IP literals
+        if (sni != null && !sni.isEmpty() && !isIpLiteral(sni)) {
+            try {
+                SSLParameters params = socket.getSSLParameters();
+                params.setServerNames(List.of(new SNIHostName(sni)));
+                socket.setSSLParameters(params);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid SNI host name - {}", sni);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+
+        socket.startHandshake();
+
+        // a resumed session keeps the creation time of the cached session
+        SSLSession session = socket.getSession();
+        if (session.getCreationTime() < start) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Upstream TLS handshake - {}:{}, {}, {}, resumed={}"
+                    , sni
+                    , port
+                    , session.getProtocol()
+                    , session.getCipherSuite()
+                    , session.getCreationTime() < start
+            );
+        }
+
+        return socket;
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+}
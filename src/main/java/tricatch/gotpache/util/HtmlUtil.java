@@ -57,6 +57,15 @@ public class HtmlUtil {
         out.flush();
     }
 
+    public static void writeRedirectResponse(HttpStreamWriter out, String location) throws IOException {
+        out.write("HTTP/1.1 301 Moved Permanently\r\n".getBytes(StandardCharsets.UTF_8));
+        out.write(("Location: " + location + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write("Connection: close\r\n".getBytes(StandardCharsets.UTF_8));
+        out.write("Content-Length: 0\r\n".getBytes(StandardCharsets.UTF_8));
+        out.write(HTTP.CRLF);
+        out.flush();
+    }
+
     public static byte[] toBytes(List<String> list) throws IOException {
 
         ByteArrayOutputStream buf = new ByteArrayOutputStream(1024);
@@ -4,12 +4,16 @@ import io.github.tricatch.gotpache.cert.KeyTool;
 import tricatch.gotpache.cert.MultiDomainCertKeyManager;
 import tricatch.gotpache.cfg.Config;
 import tricatch.gotpache.cfg.attr.Ca;
+import tricatch.gotpache.cfg.attr.Cert;
+import tricatch.gotpache.cfg.attr.Https;
+import tricatch.gotpache.cfg.attr.Upstream;
 import tricatch.gotpache.exception.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import java.security.KeyStore;
@@ -20,6 +24,8 @@ public class SSLUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(SSLUtil.class);
 
+    private static volatile MultiDomainCertKeyManager certKeyManager = null;
+
     /**
      * Initialize SSL context with CA certificate and private key
      * @param config configuration
@@ -65,8 +71,9 @@ public class SSLUtil {
             KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
             ks.load(null, null); // Initialize empty keystore
             
+            MultiDomainCertKeyManager keyManager = new MultiDomainCertKeyManager(rootCertificate, rootPrivateKey, config.getCert() != null ? config.getCert() : new Cert());
             KeyManager[] kms = new KeyManager[]{
-                    new MultiDomainCertKeyManager(rootCertificate, rootPrivateKey)
+                    keyManager
             };
 
             TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
@@ -77,6 +84,14 @@ public class SSLUtil {
             SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(kms, tms, null);
 
+            Https https = config.getHttps() != null ? config.getHttps() : new Https();
+            SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+            sessionContext.setSessionCacheSize(https.getSessionCacheSize());
+            sessionContext.setSessionTimeout(https.getSessionTimeout());
+            logger.info("Server session cache: size={}, timeout={}s", https.getSessionCacheSize(), https.getSessionTimeout());
+
+            certKeyManager = keyManager;
+
             logger.info("SSL context initialized successfully with CA: {}", ca.getCert());
 
             return sslContext;
@@ -85,4 +100,24 @@ public class SSLUtil {
             throw new ConfigException("SSL config error - " + e.getMessage(), e);
         }
     }
+
+    /**
+     * TLS system properties, read once by JSSE - must run before any SSLContext is created
+     * @param config configuration
+     */
+    public static void initSystemProperties(Config config) {
+        Https https = config.getHttps() != null ? config.getHttps() : new Https();
+        Upstream upstream = config.getUpstream() != null ? config.getUpstream() : new Upstream();
+        // stateless resumption (session tickets) for TLS 1.2 / 1.3 clients
+        System.setProperty("jdk.tls.server.enableSessionTicketExtension", String.valueOf(https.isSessionTicket()));
+        // session tickets offered to upstream servers
+        System.setProperty("jdk.tls.client.enableSessionTicketExtension", String.valueOf(upstream.isTlsSessionTicket()));
+    }
+
+    /**
+     * Key manager of the last initialized SSL context, null before
+     */
+    public static MultiDomainCertKeyManager getCertKeyManager() {
+        return certKeyManager;
+    }
 }
@@ -4,6 +4,7 @@ import tricatch.gotpache.cfg.attr.VirtualDomain;
 import tricatch.gotpache.cfg.attr.VirtualLocation;
 import tricatch.gotpache.server.VirtualHosts;
 import tricatch.gotpache.server.VirtualPath;
+import tricatch.gotpache.server.VirtualRoutes;
 
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -17,7 +18,7 @@ public class VirtualHostUtil {
 
     public static VirtualHosts convert(List<VirtualDomain> virtualDomains) throws MalformedURLException {
 
-        VirtualHosts virtualHosts = new VirtualHosts();
+        VirtualHosts.Builder virtualHosts = new VirtualHosts.Builder();
 
         for (int v = 0; v < virtualDomains.size(); v++) {
 
@@ -43,6 +44,7 @@ public class VirtualHostUtil {
                     VirtualPath virtualPath = new VirtualPath();
                     virtualPath.setPath(path);
                     virtualPath.setTarget(target);
+                    virtualPath.setSni(virtualLocation.getSni());
 
                     if( path.contains("*") ){
                         virtualPathListPattern.add(virtualPath);
@@ -86,9 +88,9 @@ public class VirtualHostUtil {
             virtualPathList.addAll(virtualPathListExact);
             virtualPathList.addAll(virtualPathListPattern);
 
-            virtualHosts.put(domain, virtualPathList);
+            virtualHosts.add(domain, new VirtualRoutes(virtualPathList, virtualDomain.isHttpsRedirect()));
         }
 
-        return virtualHosts;
+        return virtualHosts.build();
     }
 }
@@ -0,0 +1,63 @@
+package tricatch.gotpache.http.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChunkSizeParser Test")
+class ChunkSizeParserTest {
+
+    @Test
+    @DisplayName("Hex sizes")
+    void testHex() {
+        assertEquals(0, parse("0"));
+        assertEquals(26, parse("1a"));
+        assertEquals(26, parse("1A"));
+        assertEquals(4096, parse("0001000"));
+    }
+
+    @Test
+    @DisplayName("Whitespace and extensions")
+    void testExtension() {
+        assertEquals(16, parse(" 10 "));
+        assertEquals(16, parse("10;name=value"));
+        assertEquals(16, parse("10 ; name=\"quoted\""));
+    }
+
+    @Test
+    @DisplayName("Sizes beyond int")
+    void testLong() {
+        assertEquals(0x1_0000_0000L, parse("100000000"));
+        assertEquals(Long.MAX_VALUE, parse("7fffffffffffffff"));
+        assertEquals(ChunkSizeParser.INVALID, parse("8000000000000000"));
+    }
+
+    @Test
+    @DisplayName("Malformed lines")
+    void testInvalid() {
+        assertEquals(ChunkSizeParser.INVALID, parse(""));
+        assertEquals(ChunkSizeParser.INVALID, parse(";ext"));
+        assertEquals(ChunkSizeParser.INVALID, parse("1g"));
+        assertEquals(ChunkSizeParser.INVALID, parse("-1"));
+        assertEquals(ChunkSizeParser.INVALID, parse("1 2"));
+    }
+
+    @Test
+    @DisplayName("CRLF after chunk data")
+    void testReadCrlf() throws IOException {
+        HttpStreamReader in = new HttpStreamReader(new ByteArrayInputStream("\r\nx\n".getBytes(StandardCharsets.US_ASCII)), 16);
+
+        assertTrue(in.readCrlf());
+        assertFalse(in.readCrlf());
+    }
+
+    private static long parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return ChunkSizeParser.parse(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,57 @@
+package tricatch.gotpache.http.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChunkedFramer Test")
+class ChunkedFramerTest {
+
+    @Test
+    @DisplayName("Passthrough copies the body as is and stops at its end")
+    void testPassthrough() throws IOException {
+
+        String body = "5;name=value\r\nhello\r\n"
+                + "1A\r\nabcdefghijklmnopqrstuvwxyz\r\n"
+                + "3\nfoo\r\n"
+                + "0\r\n"
+                + "X-Trailer: one\r\n"
+                + "\r\n";
+
+        // small reader buffer - every part of the framing crosses a refill
+        HttpStreamReader in = new HttpStreamReader(new ByteArrayInputStream((body + "NEXT").getBytes(StandardCharsets.ISO_8859_1)), 7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ChunkedFramer framer = new ChunkedFramer();
+        while (!framer.isDone()) {
+            assertTrue(in.transfer(framer, out) >= 0);
+            assertFalse(framer.isError(), framer.getError());
+        }
+
+        assertEquals(body, out.toString(StandardCharsets.ISO_8859_1));
+        assertEquals('N', in.read());
+    }
+
+    @Test
+    @DisplayName("Broken framing stops before the bad byte")
+    void testInvalid() {
+
+        byte[] body = "3\r\nfooX\r\n0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        ChunkedFramer framer = new ChunkedFramer();
+        assertEquals(6, framer.scan(body, 0, body.length));
+        assertTrue(framer.isError());
+        assertFalse(framer.isDone());
+
+        framer = new ChunkedFramer();
+        byte[] size = "zz\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(0, framer.scan(size, 0, size.length));
+        assertTrue(framer.isError());
+    }
+}
@@ -284,4 +284,52 @@ class HttpStreamReaderTest {
         String result = buffer.toString();
         assertEquals(longLine.substring(0, 200), result);
     }
+
+    @Test
+    @DisplayName("Lines Across Buffer Refills Test")
+    void testReadLineAcrossRefills() throws IOException {
+        // 4 byte read buffer - lines and their CRLF are split over several refills
+        byte[] data = "Host: example.com\r\nA\r\r\nB\nX-Long-Header: 0123456789\r\n\r\nbody".getBytes();
+        HttpStreamReader stream = new HttpStreamReader(new ByteArrayInputStream(data), 4);
+
+        ByteBuffer buffer = new ByteBuffer(8);
+        assertEquals(17, stream.readLine(buffer, 100));
+        assertEquals("Host: example.com", buffer.toString());
+
+        stream.readLine(buffer, 100);
+        assertEquals("A\r", buffer.toString());
+
+        stream.readLine(buffer, 100);
+        assertEquals("B", buffer.toString());
+
+        stream.readLine(buffer, 100);
+        assertEquals("X-Long-Header: 0123456789", buffer.toString());
+
+        assertEquals(0, stream.readLine(buffer, 100));
+        assertEquals('b', stream.read());
+    }
+
+    @Test
+    @DisplayName("CR Runs and Bare CR Test")
+    void testReadLineCrRuns() throws IOException {
+        // only the CR right before LF belongs to the terminator, a CR at end of stream is dropped
+        byte[] data = "A\r\r\nB\rC\r\r\r\nD\r".getBytes();
+        HttpStreamReader stream = new HttpStreamReader(new ByteArrayInputStream(data), HTTP.BODY_BUFFER_SIZE);
+
+        ByteBuffer buffer = new ByteBuffer(100);
+        assertEquals(2, stream.readLine(buffer, 100));
+        assertEquals("A\r", buffer.toString());
+
+        assertEquals(5, stream.readLine(buffer, 100));
+        assertEquals("B\rC\r\r", buffer.toString());
+
+        assertEquals(1, stream.readLine(buffer, 100));
+        assertEquals("D", buffer.toString());
+
+        assertEquals(-1, stream.readLine(buffer, 100));
+
+        // a lone CR is not a line
+        HttpStreamReader cr = new HttpStreamReader(new ByteArrayInputStream("\r".getBytes()), HTTP.BODY_BUFFER_SIZE);
+        assertEquals(-1, cr.readLine(buffer, 100));
+    }
 }
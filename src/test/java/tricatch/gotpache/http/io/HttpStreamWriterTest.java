@@ -0,0 +1,58 @@
+package tricatch.gotpache.http.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HttpStreamWriter Test")
+class HttpStreamWriterTest {
+
+    private ByteArrayOutputStream sink;
+    private HttpStreamWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        sink = new ByteArrayOutputStream();
+        writer = new HttpStreamWriter(sink);
+    }
+
+    @Test
+    @DisplayName("Coalesce while the input has more bytes")
+    void testCoalesce() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[100]);
+
+        writer.write(new byte[10]);
+        writer.flushIfIdle(in);
+
+        assertEquals(0, sink.size());
+    }
+
+    @Test
+    @DisplayName("Flush when the input has nothing buffered")
+    void testFlushWhenIdle() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+
+        writer.write(new byte[10]);
+        writer.flushIfIdle(in);
+
+        assertEquals(10, sink.size());
+    }
+
+    @Test
+    @DisplayName("Immediate flush for streamed responses")
+    void testImmediateFlush() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[100]);
+
+        writer.setImmediateFlush(true);
+        writer.write(new byte[10]);
+        writer.flushIfIdle(in);
+
+        assertEquals(10, sink.size());
+    }
+}
@@ -0,0 +1,52 @@
+package tricatch.gotpache.pass;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BufferPool Test")
+class BufferPoolTest {
+
+    @Test
+    @DisplayName("Released buffer is reused")
+    void testReuse() {
+        BufferPool pool = new BufferPool("test", 64, 1);
+
+        byte[] first = pool.acquire();
+        pool.release(first);
+        byte[] second = pool.acquire();
+
+        assertSame(first, second);
+        assertEquals(2, pool.getAcquireCount());
+        assertEquals(1, pool.getAllocateCount());
+    }
+
+    @Test
+    @DisplayName("Pool keeps at most maxPooled buffers")
+    void testBounded() {
+        BufferPool pool = new BufferPool("test", 64, 4);
+
+        List<byte[]> buffers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) buffers.add(pool.acquire());
+        for (byte[] buffer : buffers) pool.release(buffer);
+
+        assertTrue(pool.getPooled() <= 4);
+        assertEquals(16 - pool.getPooled(), pool.getDropCount());
+    }
+
+    @Test
+    @DisplayName("Foreign buffers are not pooled")
+    void testForeignBuffer() {
+        BufferPool pool = new BufferPool("test", 64, 4);
+
+        pool.release(new byte[32]);
+        pool.release(null);
+
+        assertEquals(0, pool.getPooled());
+        assertEquals(0, pool.getDropCount());
+    }
+}
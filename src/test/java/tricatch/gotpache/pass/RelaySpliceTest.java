@@ -0,0 +1,59 @@
+package tricatch.gotpache.pass;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tricatch.gotpache.http.io.ByteBuffer;
+import tricatch.gotpache.http.io.HttpStream;
+import tricatch.gotpache.http.io.HttpStreamReader;
+import tricatch.gotpache.http.io.HttpStreamWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RelaySplice Test")
+class RelaySpliceTest {
+
+    @Test
+    @DisplayName("Splice the read-ahead bytes, then the rest of the stream")
+    void testContentLength() throws IOException {
+        byte[] body = new byte[200_000];
+        for (int i = 0; i < body.length; i++) body[i] = (byte) i;
+
+        HttpStreamReader in = reader("HTTP/1.1 200 OK\r\n", body, "NEXT");
+        in.readLine(new ByteBuffer(64), 64);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        long relayed = RelaySplice.relay("rid", HttpStream.Flow.RES, body.length, in, new HttpStreamWriter(sink));
+
+        assertEquals(body.length, relayed);
+        assertArrayEquals(body, sink.toByteArray());
+        assertEquals('N', in.read());
+    }
+
+    @Test
+    @DisplayName("Splice until end of stream")
+    void testUntilClose() throws IOException {
+        byte[] body = "until close".getBytes(StandardCharsets.US_ASCII);
+
+        HttpStreamReader in = reader("HTTP/1.0 200 OK\r\n", body, "");
+        in.readLine(new ByteBuffer(64), 64);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        long relayed = RelaySplice.relay("rid", HttpStream.Flow.RES, -1, in, new HttpStreamWriter(sink));
+
+        assertEquals(body.length, relayed);
+        assertArrayEquals(body, sink.toByteArray());
+    }
+
+    private static HttpStreamReader reader(String head, byte[] body, String tail) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(head.getBytes(StandardCharsets.US_ASCII));
+        stream.write(body);
+        stream.write(tail.getBytes(StandardCharsets.US_ASCII));
+        return new HttpStreamReader(new ByteArrayInputStream(stream.toByteArray()), 1024);
+    }
+}
@@ -0,0 +1,59 @@
+package tricatch.gotpache.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VirtualHostsRegistry Test")
+class VirtualHostsRegistryTest {
+
+    @Test
+    @DisplayName("Concurrent first connections load a client once")
+    void testSingleLoad() throws Exception {
+
+        AtomicInteger loads = new AtomicInteger(0);
+        VirtualHostsRegistry registry = new VirtualHostsRegistry(clientId -> {
+            loads.incrementAndGet();
+            return new VirtualHosts.Builder().build();
+        });
+
+        int clients = 200;
+        int threads = 8;
+
+        for (int c = 0; c < clients; c++) {
+
+            String clientId = "10.0.0." + c;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                        assertNotNull(registry.get(clientId));
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+
+            start.countDown();
+            for (Thread worker : workers) worker.join();
+
+            assertTrue(errors.isEmpty(), errors.toString());
+        }
+
+        assertEquals(clients, loads.get());
+    }
+}
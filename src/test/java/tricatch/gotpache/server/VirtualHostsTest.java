@@ -0,0 +1,78 @@
+package tricatch.gotpache.server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VirtualHosts Test")
+class VirtualHostsTest {
+
+    private VirtualHosts virtualHosts;
+    private VirtualRoutes exact;
+    private VirtualRoutes wildcard;
+    private VirtualRoutes deepWildcard;
+    private VirtualRoutes defaultHost;
+
+    @BeforeEach
+    void setUp() {
+        exact = new VirtualRoutes(new ArrayList<>());
+        wildcard = new VirtualRoutes(new ArrayList<>());
+        deepWildcard = new VirtualRoutes(new ArrayList<>());
+        defaultHost = new VirtualRoutes(new ArrayList<>());
+
+        virtualHosts = builder().build();
+    }
+
+    @Test
+    @DisplayName("Normalize host header")
+    void testNormalize() {
+        assertEquals("foo.kr", VirtualHosts.normalize("FOO.kr:443"));
+        assertEquals("foo.kr", VirtualHosts.normalize("foo.kr."));
+        assertEquals("[::1]", VirtualHosts.normalize("[::1]:8443"));
+        assertEquals("", VirtualHosts.normalize(null));
+    }
+
+    @Test
+    @DisplayName("Exact host with port and case")
+    void testExact() {
+        assertSame(exact, virtualHosts.find("foo.kr"));
+        assertSame(exact, virtualHosts.find("FOO.KR:443"));
+    }
+
+    @Test
+    @DisplayName("Wildcard host - longest suffix wins")
+    void testWildcard() {
+        assertSame(wildcard, virtualHosts.find("a.foo.kr"));
+        assertSame(wildcard, virtualHosts.find("a.b.foo.kr:8443"));
+        assertSame(wildcard, virtualHosts.find("preview.foo.kr"));
+        assertSame(deepWildcard, virtualHosts.find("pr-12.preview.foo.kr"));
+        assertNull(virtualHosts.find("xfoo.kr"));
+    }
+
+    @Test
+    @DisplayName("Default host")
+    void testDefault() {
+        assertNull(virtualHosts.find("goo.kr"));
+        VirtualHosts withDefault = builder().add(VirtualHosts.DEFAULT_HOST, defaultHost).build();
+        assertSame(defaultHost, withDefault.find("goo.kr"));
+        assertSame(exact, withDefault.find("foo.kr"));
+    }
+
+    @Test
+    @DisplayName("Published table cannot be modified")
+    void testImmutable() {
+        assertThrows(UnsupportedOperationException.class, () -> virtualHosts.getDomains().put("goo.kr", defaultHost));
+        assertThrows(UnsupportedOperationException.class, () -> virtualHosts.getDomains().clear());
+    }
+
+    private VirtualHosts.Builder builder() {
+        return new VirtualHosts.Builder()
+                .add("Foo.kr", exact)
+                .add("*.foo.kr", wildcard)
+                .add("*.preview.foo.kr", deepWildcard);
+    }
+}
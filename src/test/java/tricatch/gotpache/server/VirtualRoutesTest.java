@@ -0,0 +1,116 @@
+package tricatch.gotpache.server;
+
+import io.github.azagniotov.matcher.AntPathMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VirtualRoutes Test")
+class VirtualRoutesTest {
+
+    private static VirtualPath path(String path, String target) throws Exception {
+        VirtualPath virtualPath = new VirtualPath();
+        virtualPath.setPath(path);
+        virtualPath.setTarget(URI.create(target).toURL());
+        return virtualPath;
+    }
+
+    /**
+     * Same order as VirtualHostUtil.convert: exact paths, then patterns, each reverse-sorted
+     */
+    private static VirtualRoutes routes() throws Exception {
+        List<VirtualPath> paths = new ArrayList<>();
+        paths.add(path("/login", "http://127.0.0.1:7000"));
+        paths.add(path("/js/**", "http://127.0.0.1:9999"));
+        paths.add(path("/img/**", "http://127.0.0.1:9999"));
+        paths.add(path("/api/*/detail", "http://127.0.0.1:7777"));
+        paths.add(path("/api/**", "http://127.0.0.1:8080"));
+        paths.add(path("/**", "http://127.0.0.1:8888"));
+        return new VirtualRoutes(paths);
+    }
+
+    @Test
+    @DisplayName("Exact path before patterns")
+    void testExact() throws Exception {
+        VirtualRoutes routes = routes();
+        assertEquals("/login", routes.match("/login").getPath());
+        assertEquals("/**", routes.match("/login/more").getPath());
+    }
+
+    @Test
+    @DisplayName("Prefix patterns")
+    void testPrefix() throws Exception {
+        VirtualRoutes routes = routes();
+        assertEquals("/img/**", routes.match("/img").getPath());
+        assertEquals("/img/**", routes.match("/img/a/b.png").getPath());
+        assertEquals("/js/**", routes.match("/js/app.js?v=1").getPath());
+        assertEquals("/**", routes.match("/imgx/a.png").getPath());
+        assertEquals("/**", routes.match("/").getPath());
+    }
+
+    @Test
+    @DisplayName("Wildcard pattern keeps list precedence")
+    void testWildcard() throws Exception {
+        VirtualRoutes routes = routes();
+        assertEquals("/api/*/detail", routes.match("/api/1/detail").getPath());
+        assertEquals("/api/**", routes.match("/api/1/detail/x").getPath());
+    }
+
+    @Test
+    @DisplayName("No match")
+    void testNoMatch() throws Exception {
+        List<VirtualPath> paths = new ArrayList<>();
+        paths.add(path("/api/**", "http://127.0.0.1:8080"));
+        VirtualRoutes routes = new VirtualRoutes(paths);
+        assertNull(routes.match("/web/index.html"));
+        assertNull(routes.match(null));
+    }
+
+    @Test
+    @DisplayName("Same matches as AntPathMatcher")
+    void testSameAsMatcher() throws Exception {
+
+        AntPathMatcher matcher = new AntPathMatcher.Builder().build();
+
+        String[] patterns = {
+                "/", "/api", "/api/", "/api//", "/api/v1",
+                "/**", "/api/**", "/api/v1/**", "/api//**", "/api/v1//**",
+                "/api/*", "/api/*/detail", "/api/v?/**", "*.html"
+        };
+        String[] uris = {
+                "", "/", "//", "/api", "/api/", "/api//", "/apix", "/api/v1", "/api/v1/", "/api/v1/x",
+                "/api//v1/x", "/api/v2/x", "/api/1/detail", "/index.html",
+                "api/v1", "http://example.com/api/v1", "*"
+        };
+
+        // each pattern alone
+        for (String pattern : patterns) {
+            VirtualRoutes routes = new VirtualRoutes(List.of(path(pattern, "http://127.0.0.1:8080")));
+            for (String uri : uris) {
+                assertEquals(matcher.isMatch(pattern, uri), routes.match(uri) != null, pattern + " - " + uri);
+            }
+        }
+
+        // all patterns - first match in list order
+        List<VirtualPath> paths = new ArrayList<>();
+        for (String pattern : patterns) paths.add(path(pattern, "http://127.0.0.1:8080"));
+        VirtualRoutes routes = new VirtualRoutes(paths);
+
+        for (String uri : uris) {
+            String expected = null;
+            for (String pattern : patterns) {
+                if (matcher.isMatch(pattern, uri)) {
+                    expected = pattern;
+                    break;
+                }
+            }
+            VirtualPath matched = routes.match(uri);
+            assertEquals(expected, matched == null ? null : matched.getPath(), uri);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package tricatch.gotpache.upstream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UpstreamTlsClient Test")
+class UpstreamTlsClientTest {
+
+    @Test
+    @DisplayName("IP literals get no SNI")
+    void testIpLiteral() {
+        assertTrue(UpstreamTlsClient.isIpLiteral("127.0.0.1"));
+        assertTrue(UpstreamTlsClient.isIpLiteral("::a"));
+        assertTrue(UpstreamTlsClient.isIpLiteral("fe80::1"));
+        assertTrue(UpstreamTlsClient.isIpLiteral("[fe80::1]"));
+
+        assertFalse(UpstreamTlsClient.isIpLiteral("node1"));
+        assertFalse(UpstreamTlsClient.isIpLiteral("api.v2"));
+        assertFalse(UpstreamTlsClient.isIpLiteral("example.com"));
+        assertFalse(UpstreamTlsClient.isIpLiteral("1.2.3.4.example.com"));
+    }
+}